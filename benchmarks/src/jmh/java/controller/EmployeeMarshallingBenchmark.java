@@ -0,0 +1,72 @@
+package controller;
+
+import controller.marshalling.MarshallerPool;
+import controller.marshalling.PooledJaxbHttpMessageConverter;
+import controller.model.Employee;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.xml.Jaxb2RootElementHttpMessageConverter;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * XML responses of the {@code .xml} endpoints: the default converter of Spring, which creates a
+ * marshaller per response, against {@link PooledJaxbHttpMessageConverter}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EmployeeMarshallingBenchmark {
+
+    private final Employee employee = new Employee("Phil", "employee1@example.com");
+    private final Jaxb2RootElementHttpMessageConverter defaultConverter = new Jaxb2RootElementHttpMessageConverter();
+    private final MarshallerPool marshallers = new MarshallerPool(32, Employee.class);
+    private final PooledJaxbHttpMessageConverter pooledConverter = new PooledJaxbHttpMessageConverter(marshallers);
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+
+    /**
+     * What the default converter does besides the HTTP headers: a marshaller per response.
+     */
+    @Benchmark
+    public ByteArrayOutputStream newMarshaller() throws JAXBException {
+        out.reset();
+        marshallers.getContext().createMarshaller().marshal(employee, out);
+        return out;
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream pooledMarshaller() throws JAXBException {
+        out.reset();
+        Marshaller marshaller = marshallers.borrow();
+        try {
+            marshaller.marshal(employee, out);
+        } finally {
+            marshallers.release(marshaller);
+        }
+        return out;
+    }
+
+    @Benchmark
+    public MockHttpOutputMessage defaultConverter() throws IOException {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        defaultConverter.write(employee, MediaType.APPLICATION_XML, message);
+        return message;
+    }
+
+    @Benchmark
+    public MockHttpOutputMessage pooledConverter() throws IOException {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        pooledConverter.write(employee, MediaType.APPLICATION_XML, message);
+        return message;
+    }
+}
@@ -0,0 +1,78 @@
+package controller;
+
+import controller.model.Employee;
+import controller.web.EmployeePages;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thymeleaf rendering of {@code employee.html}: to a {@code String} as {@code EmployeeControllerRest.getEmployeeInHTML}
+ * used to do, and with {@link EmployeePages} streamed to a writer or cached (including the mock response).
+ * Renders per second are reported; run with {@code -prof gc} for the bytes allocated per render.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class EmployeeRenderingBenchmark {
+
+    private TemplateEngine templateEngine;
+    private EmployeePages streamedPages;
+    private EmployeePages cachedPages;
+    private Employee employee;
+    private final CharArrayWriter writer = new CharArrayWriter(1024);
+
+    @Setup
+    public void setup() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        templateEngine = new TemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+
+        streamedPages = new EmployeePages(templateEngine, 0, Duration.ofMinutes(1));
+        cachedPages = new EmployeePages(templateEngine, 1000, Duration.ofMinutes(1));
+        employee = new Employee("Phil", "employee1@example.com");
+    }
+
+    @Benchmark
+    public String getEmployeeInHTML() {
+        Context ctx = new Context(Locale.getDefault());
+        ctx.setVariable("employee", employee);
+        return templateEngine.process("employee", ctx);
+    }
+
+    /**
+     * The writer is reused, as the servlet container does with the response writer.
+     */
+    @Benchmark
+    public CharArrayWriter streamed() {
+        writer.reset();
+        streamedPages.write(employee, writer);
+        return writer;
+    }
+
+    @Benchmark
+    public MockHttpServletResponse cached() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        cachedPages.write(employee, response);
+        return response;
+    }
+}
@@ -0,0 +1,52 @@
+package mood;
+
+import mood.web.MoodServlet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletConfig;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requests per second of {@link MoodServlet} for a request already marked by {@code TimeOfDayFilter}:
+ * printed on every request ({@code writer}), pre-rendered, and pre-rendered for a client that
+ * accepts gzip. Run with {@code -prof gc} for the allocation per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MoodServletBenchmark {
+
+    @Param({"writer", "prerendered", "gzip"})
+    public String mode;
+
+    private final MoodServlet servlet = new MoodServlet();
+
+    @Setup
+    public void setup() throws Exception {
+        MockServletConfig config = new MockServletConfig();
+        config.addInitParameter("prerendered", String.valueOf(!mode.equals("writer")));
+        servlet.init(config);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse doGet() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/mood/report");
+        request.setContextPath("/mood");
+        request.setAttribute("mood", "alert");
+        if (mode.equals("gzip")) {
+            request.addHeader("Accept-Encoding", "gzip, deflate, br");
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        servlet.doGet(request, response);
+        return response;
+    }
+}
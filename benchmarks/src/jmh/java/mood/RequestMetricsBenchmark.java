@@ -0,0 +1,55 @@
+package mood;
+
+import mood.metrics.RequestMetrics;
+import mood.web.RequestMetricsFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of recording latencies in {@link RequestMetrics}, shared by four threads, and of the filter
+ * chain through {@link RequestMetricsFilter}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RequestMetricsBenchmark {
+
+    private final RequestMetrics metrics = new RequestMetrics();
+
+    @Benchmark
+    @Threads(4)
+    public RequestMetrics record() {
+        metrics.record("MoodServlet", 200, ThreadLocalRandom.current().nextLong(100_000), TimeUnit.NANOSECONDS);
+        return metrics;
+    }
+
+    @State(Scope.Thread)
+    public static class Request {
+
+        private final RequestMetricsFilter filter = new RequestMetricsFilter();
+        private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/mood/report");
+        private final MockHttpServletResponse response = new MockHttpServletResponse();
+        private final FilterChain chain = (req, res) -> { };
+
+        public Request() {
+            request.setServletPath("/report");
+        }
+    }
+
+    @Benchmark
+    public MockHttpServletResponse doFilter(Request state) throws Exception {
+        state.filter.doFilter(state.request, state.response, state.chain);
+        return state.response;
+    }
+}
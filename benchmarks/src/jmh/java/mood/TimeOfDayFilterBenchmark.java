@@ -0,0 +1,42 @@
+package mood;
+
+import mood.web.TimeOfDayFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the filter chain through {@link TimeOfDayFilter}, against the calendar lookup
+ * that the filter used to do on every request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TimeOfDayFilterBenchmark {
+
+    private final TimeOfDayFilter filter = new TimeOfDayFilter();
+    private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/mood/report");
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private final FilterChain chain = (req, res) -> { };
+
+    @Benchmark
+    public MockHttpServletRequest doFilter() throws Exception {
+        filter.doFilter(request, response, chain);
+        return request;
+    }
+
+    @Benchmark
+    public int calendarHour() {
+        return GregorianCalendar.getInstance().get(Calendar.HOUR_OF_DAY);
+    }
+}
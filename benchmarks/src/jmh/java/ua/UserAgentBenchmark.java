@@ -0,0 +1,57 @@
+package ua;
+
+import net.sf.uadetector.ReadableUserAgent;
+import net.sf.uadetector.UserAgentStringParser;
+import net.sf.uadetector.service.UADetectorServiceFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * User-Agent parsing as done by the endpoint of {@code UserAgentTest}, over the corpus
+ * {@code user-agents.txt}. Each invocation parses the next string of the corpus.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserAgentBenchmark {
+
+    private final UserAgentStringParser parser = UADetectorServiceFactory.getResourceModuleParser();
+    private final UserAgentStringParser cachingParser = new CachingUserAgentParser(parser, 10_000, 512);
+
+    private String[] corpus;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                getClass().getResourceAsStream("/user-agents.txt"), StandardCharsets.UTF_8))) {
+            corpus = reader.lines().filter(line -> !line.isEmpty()).toArray(String[]::new);
+        }
+    }
+
+    @Benchmark
+    public ReadableUserAgent parse() {
+        return parser.parse(nextUserAgent());
+    }
+
+    @Benchmark
+    public ReadableUserAgent parseCached() {
+        return cachingParser.parse(nextUserAgent());
+    }
+
+    private String nextUserAgent() {
+        next = next + 1 == corpus.length ? 0 : next + 1;
+        return corpus[next];
+    }
+}
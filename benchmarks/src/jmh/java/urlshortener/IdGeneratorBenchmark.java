@@ -0,0 +1,59 @@
+package urlshortener;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import urlshortener.id.Base62HashIdGenerator;
+import urlshortener.id.CounterIdGenerator;
+import urlshortener.id.IdGenerator;
+import urlshortener.id.Murmur3IdGenerator;
+import urlshortener.id.SnowflakeIdGenerator;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of the id strategies of {@code urlshortener.id}, with 4 threads to show contention.
+ *
+ * The counter strategy reserves its blocks from an in-memory counter instead of Redis, which
+ * is called once every 1000 ids.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+public class IdGeneratorBenchmark {
+
+    private static final String URL = "http://example.com/campaigns/2019/autumn?utm_source=newsletter";
+
+    private final IdGenerator murmur3 = new Murmur3IdGenerator();
+    private final IdGenerator base62 = new Base62HashIdGenerator(7);
+    private final AtomicLong counter = new AtomicLong();
+    private final IdGenerator counterBlocks = new CounterIdGenerator(counter::addAndGet, 1000);
+    private final IdGenerator snowflake = new SnowflakeIdGenerator(1, Clock.systemUTC());
+
+    @Benchmark
+    public String murmur3() {
+        return murmur3.generate(URL, 0);
+    }
+
+    @Benchmark
+    public String base62() {
+        return base62.generate(URL, 0);
+    }
+
+    @Benchmark
+    public String counter() {
+        return counterBlocks.generate(URL, 0);
+    }
+
+    @Benchmark
+    public String snowflake() {
+        return snowflake.generate(URL, 0);
+    }
+}
@@ -0,0 +1,45 @@
+package urlshortener;
+
+import org.apache.commons.validator.routines.UrlValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import urlshortener.validation.LinkValidator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * URL validation of {@code App.shortener} before ({@code perRequest}) and after
+ * {@link LinkValidator}, for a valid URL and for input rejected by the pre-scan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LinkValidatorBenchmark {
+
+    @Param({"http://example.com/campaigns/2019/autumn?utm_source=newsletter", "example.com/campaigns"})
+    public String url;
+
+    private final LinkValidator shared = new LinkValidator(0);
+    private final LinkValidator cached = new LinkValidator(10_000);
+
+    @Benchmark
+    public boolean perRequest() {
+        UrlValidator urlValidator = new UrlValidator(new String[]{"http", "https"});
+        return urlValidator.isValid(url);
+    }
+
+    @Benchmark
+    public boolean shared() {
+        return shared.isValid(url);
+    }
+
+    @Benchmark
+    public boolean cached() {
+        return cached.isValid(url);
+    }
+}
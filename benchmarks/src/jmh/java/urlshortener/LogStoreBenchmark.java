@@ -0,0 +1,65 @@
+package urlshortener;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import urlshortener.store.LogUrlStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Lookups of one million ids in {@link LogUrlStore}, which are reads of memory-mapped files
+ * without a network hop.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LogStoreBenchmark {
+
+    private static final int IDS = 1_000_000;
+
+    private Path directory;
+    private LogUrlStore store;
+    private final String[] ids = new String[IDS];
+
+    @Setup(Level.Trial)
+    public void populate() throws IOException {
+        directory = Files.createTempDirectory("log-store");
+        store = new LogUrlStore(directory, 64 * 1024 * 1024, Duration.ofMinutes(1));
+        for (int i = 0; i < IDS; i++) {
+            ids[i] = Integer.toHexString(0x10000000 + i * 7919);
+            store.setIfAbsent(ids[i], "http://example.com/" + i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        store.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public String get() {
+        return store.get(ids[ThreadLocalRandom.current().nextInt(IDS)]);
+    }
+
+    @Benchmark
+    public String getMissing() {
+        return store.get("missing" + ThreadLocalRandom.current().nextInt(IDS));
+    }
+}
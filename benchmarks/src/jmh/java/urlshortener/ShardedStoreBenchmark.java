@@ -0,0 +1,81 @@
+package urlshortener;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import urlshortener.store.RedisUrlStore;
+import urlshortener.store.ShardedUrlStore;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link ShardedUrlStore} over 1, 2 and 4 Redis servers, each a single-threaded
+ * process, with 16 client threads. Start the servers and list them in the system property
+ * {@code urlshortener.nodes}, by default on the ports 6380 to 6383:
+ *
+ * <pre>
+ * for port in 6380 6381 6382 6383; do redis-server --port $port --save '' --daemonize yes; done
+ * </pre>
+ *
+ * Throughput only grows with the shards while the clients and servers have cores to run on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(16)
+public class ShardedStoreBenchmark {
+
+    private static final int IDS = 10_000;
+    private static final int BATCH = 100;
+
+    @Param({"1", "2", "4"})
+    public int shards;
+
+    private ShardedUrlStore store;
+    private final List<String> ids = new ArrayList<>();
+    private final List<String> urls = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void populate() {
+        String[] nodes = System.getProperty("urlshortener.nodes",
+                "localhost:6380,localhost:6381,localhost:6382,localhost:6383").split(",");
+        List<String> used = new ArrayList<>();
+        for (int i = 0; i < shards; i++) {
+            used.add(nodes[i]);
+        }
+        store = new ShardedUrlStore(used, 160, node -> RedisUrlStore.connect(node, Duration.ofSeconds(2), 16));
+        for (int i = 0; i < IDS; i++) {
+            ids.add(Integer.toHexString(0x10000000 + i * 7919));
+            urls.add("http://example.com/" + i);
+        }
+        store.setIfAbsent(ids, urls);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        store.close();
+    }
+
+    @Benchmark
+    public String get() {
+        return store.get(ids.get(ThreadLocalRandom.current().nextInt(IDS)));
+    }
+
+    @Benchmark
+    public List<Boolean> setIfAbsentBatch() {
+        int from = ThreadLocalRandom.current().nextInt(IDS - BATCH);
+        return store.setIfAbsent(ids.subList(from, from + BATCH), urls.subList(from, from + BATCH));
+    }
+}
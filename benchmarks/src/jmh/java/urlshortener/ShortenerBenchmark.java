@@ -0,0 +1,32 @@
+package urlshortener;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import urlshortener.id.IdGenerator;
+import urlshortener.id.Murmur3IdGenerator;
+import urlshortener.validation.LinkValidator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The CPU work of {@code App.shortener} before Redis: URL validation plus murmur3 id hashing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ShortenerBenchmark {
+
+    private static final String URL = "http://example.com/campaigns/2019/autumn?utm_source=newsletter";
+
+    private final LinkValidator linkValidator = new LinkValidator(0);
+    private final IdGenerator idGenerator = new Murmur3IdGenerator();
+
+    @Benchmark
+    public String validateAndHash() {
+        return linkValidator.isValid(URL) ? idGenerator.generate(URL, 0) : null;
+    }
+}
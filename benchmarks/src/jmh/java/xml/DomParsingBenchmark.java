@@ -0,0 +1,61 @@
+package xml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Document;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DOM parsing as done by {@code XmlDangersTest.getDocument}, a new factory per document, against
+ * the shared factories of {@link SecureXml} and its streaming selection. Run with {@code -prof gc}
+ * to compare the allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DomParsingBenchmark {
+
+    /**
+     * Number of {@code post} elements in the document.
+     */
+    @Param({"1", "1000"})
+    public int posts;
+
+    private String content;
+
+    @Setup
+    public void setup() {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><posts>");
+        for (int i = 0; i < posts; i++) {
+            xml.append("<post><title>Post ").append(i).append("</title><content>Some content</content></post>");
+        }
+        content = xml.append("</posts>").toString();
+    }
+
+    @Benchmark
+    public Document getDocument() throws Exception {
+        DocumentBuilderFactory docBuilderFactory = DocumentBuilderFactory.newInstance();
+        javax.xml.parsers.DocumentBuilder builder = docBuilderFactory.newDocumentBuilder();
+        return builder.parse(new ByteArrayInputStream(content.getBytes()));
+    }
+
+    @Benchmark
+    public Document secureDocument() throws Exception {
+        return SecureXml.parse(new ByteArrayInputStream(content.getBytes()));
+    }
+
+    @Benchmark
+    public void selectTitles(Blackhole blackhole) throws Exception {
+        SecureXml.select(new ByteArrayInputStream(content.getBytes()), "/posts/post/title", blackhole::consume);
+    }
+}
@@ -0,0 +1,70 @@
+package controller.marshalling;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A {@link JAXBContext} built once and a pool of its {@link Marshaller}s.
+ *
+ * A JAXBContext is thread-safe but expensive to create, a Marshaller is cheaper but not
+ * thread-safe. Borrowing never blocks: when the pool is empty a new marshaller is created,
+ * and marshallers returned to a full pool are dropped.
+ */
+public class MarshallerPool {
+
+    private final JAXBContext context;
+    private final Set<Class<?>> classes;
+    private final BlockingQueue<Marshaller> pool;
+
+    /**
+     * @param size    maximum number of idle marshallers
+     * @param classes the root element classes bound to the context
+     */
+    public MarshallerPool(int size, Class<?>... classes) {
+        this.classes = new HashSet<>(Arrays.asList(classes));
+        try {
+            this.context = JAXBContext.newInstance(classes);
+        } catch (JAXBException e) {
+            throw new IllegalStateException("Cannot create the JAXB context", e);
+        }
+        this.pool = new ArrayBlockingQueue<>(size);
+    }
+
+    public JAXBContext getContext() {
+        return context;
+    }
+
+    public boolean isBound(Class<?> clazz) {
+        return classes.contains(clazz);
+    }
+
+    /**
+     * @return a marshaller that must be given back with {@link #release(Marshaller)}
+     */
+    public Marshaller borrow() throws JAXBException {
+        Marshaller marshaller = pool.poll();
+        return marshaller != null ? marshaller : context.createMarshaller();
+    }
+
+    /**
+     * Resets the fragment property, the only one changed by this package, and pools the marshaller.
+     */
+    public void release(Marshaller marshaller) {
+        try {
+            marshaller.setProperty(Marshaller.JAXB_FRAGMENT, false);
+        } catch (JAXBException e) {
+            return;
+        }
+        pool.offer(marshaller);
+    }
+
+    public int pooled() {
+        return pool.size();
+    }
+}
@@ -0,0 +1,32 @@
+package controller.marshalling;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import controller.model.Employee;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Marshalling of the model: one JAXB context, pooled marshallers and streaming lists.
+ *
+ * Spring Boot puts the {@link PooledJaxbHttpMessageConverter} bean ahead of its default
+ * converters, so it handles the {@code .xml} endpoints.
+ */
+@Configuration
+public class MarshallingConfiguration {
+
+    @Bean
+    public MarshallerPool marshallerPool(@Value("${employee.marshaller-pool.size:32}") int size) {
+        return new MarshallerPool(size, Employee.class);
+    }
+
+    @Bean
+    public PooledJaxbHttpMessageConverter pooledJaxbHttpMessageConverter(MarshallerPool marshallerPool) {
+        return new PooledJaxbHttpMessageConverter(marshallerPool);
+    }
+
+    @Bean
+    public StreamingListWriter streamingListWriter(MarshallerPool marshallerPool, ObjectMapper objectMapper) {
+        return new StreamingListWriter(marshallerPool, objectMapper);
+    }
+}
@@ -0,0 +1,78 @@
+package controller.marshalling;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads and writes the classes bound to a {@link MarshallerPool} as XML.
+ *
+ * It replaces {@code Jaxb2RootElementHttpMessageConverter}, which creates a marshaller per
+ * response, for the classes known to the pool.
+ */
+public class PooledJaxbHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+    private final MarshallerPool marshallers;
+    private final XMLInputFactory inputFactory = inputFactory();
+
+    public PooledJaxbHttpMessageConverter(MarshallerPool marshallers) {
+        super(StandardCharsets.UTF_8, MediaType.APPLICATION_XML, MediaType.TEXT_XML, new MediaType("application", "*+xml"));
+        this.marshallers = marshallers;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return marshallers.isBound(clazz);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        try {
+            XMLStreamReader reader = inputFactory.createXMLStreamReader(inputMessage.getBody());
+            try {
+                return marshallers.getContext().createUnmarshaller().unmarshal(reader, clazz).getValue();
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException | JAXBException e) {
+            throw new HttpMessageNotReadableException("Cannot read " + clazz.getSimpleName(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object o, HttpOutputMessage outputMessage) throws IOException {
+        Marshaller marshaller;
+        try {
+            marshaller = marshallers.borrow();
+        } catch (JAXBException e) {
+            throw new HttpMessageNotWritableException("Cannot create a marshaller", e);
+        }
+        try {
+            marshaller.marshal(o, outputMessage.getBody());
+        } catch (JAXBException e) {
+            throw new HttpMessageNotWritableException("Cannot write " + o.getClass().getSimpleName(), e);
+        } finally {
+            marshallers.release(marshaller);
+        }
+    }
+
+    private static XMLInputFactory inputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+        return factory;
+    }
+}
@@ -0,0 +1,73 @@
+package controller.marshalling;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes lists as a JSON array or as XML elements under a root element, one item at a time.
+ *
+ * Items are serialized as they are iterated, so neither the list nor the whole payload has to
+ * be in memory. The output is not flushed per item, the underlying stream decides when to send.
+ */
+public class StreamingListWriter {
+
+    private final MarshallerPool marshallers;
+    private final ObjectWriter jsonWriter;
+    private final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+
+    public StreamingListWriter(MarshallerPool marshallers, ObjectMapper mapper) {
+        this.marshallers = marshallers;
+        this.jsonWriter = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public void writeJson(Iterable<?> items, OutputStream out) throws IOException {
+        JsonGenerator generator = jsonWriter.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try {
+            generator.writeStartArray();
+            for (Object item : items) {
+                jsonWriter.writeValue(generator, item);
+            }
+            generator.writeEndArray();
+        } finally {
+            generator.close();
+        }
+    }
+
+    /**
+     * @param root the name of the element that contains the items
+     */
+    public void writeXml(String root, Iterable<?> items, OutputStream out) throws IOException {
+        Marshaller marshaller = null;
+        try {
+            XMLStreamWriter writer = outputFactory.createXMLStreamWriter(out, StandardCharsets.UTF_8.name());
+            marshaller = marshallers.borrow();
+            marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+            writer.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+            writer.writeStartElement(root);
+            for (Object item : items) {
+                marshaller.marshal(item, writer);
+            }
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.close();
+        } catch (XMLStreamException | JAXBException e) {
+            throw new IOException("Cannot write the " + root + " list", e);
+        } finally {
+            if (marshaller != null) {
+                marshallers.release(marshaller);
+            }
+        }
+    }
+}
@@ -1,31 +1,84 @@
 package controller.model;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlRootElement;
+import java.util.Objects;
 
+/**
+ * An immutable employee, so that a value can be shared by concurrent requests.
+ */
 @XmlRootElement(name = "Employee")
+@XmlAccessorType(XmlAccessType.FIELD)
 public class Employee {
 
-    String name;
+    private String name;
 
-    String email;
+    private String email;
 
-    public String getName() {
-        return name;
-    }
+    // Computed once, not part of the representations
+    private transient String version;
 
-    public void setName(String name) {
+    @JsonCreator
+    public Employee(@JsonProperty("name") String name, @JsonProperty("email") String email) {
         this.name = name;
+        this.email = email;
+    }
+
+    // Required by JAXB
+    private Employee() {
+    }
+
+    public String getName() {
+        return name;
     }
 
     public String getEmail() {
         return email;
     }
 
-    public void setEmail(String email) {
-        this.email = email;
+    /**
+     * A hash of the fields, the same for equal employees and used as the base of their ETags.
+     */
+    public String version() {
+        String v = version;
+        if (v == null) {
+            long hash = 0xcbf29ce484222325L;
+            hash = fnv1a(hash, name);
+            hash = fnv1a(hash * 0x100000001b3L, email);
+            v = Long.toHexString(hash);
+            version = v;
+        }
+        return v;
+    }
+
+    private static long fnv1a(long hash, String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Employee)) {
+            return false;
+        }
+        Employee employee = (Employee) o;
+        return Objects.equals(name, employee.name) && Objects.equals(email, employee.email);
     }
 
-    public Employee() {
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, email);
     }
 
 }
@@ -0,0 +1,138 @@
+package controller.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import controller.model.Employee;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the employees of {@code employee.data} into the {@link EmployeeRepository} at startup.
+ *
+ * The file is memory-mapped in windows and parsed line by line without copying it to the heap.
+ * Files ending in {@code .csv} hold {@code name,email} lines, with an optional header; other
+ * files hold one JSON employee per line (NDJSON).
+ */
+@Component
+public class EmployeeLoader implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(EmployeeLoader.class);
+
+    static final int WINDOW = 64 * 1024 * 1024;
+
+    private final EmployeeRepository repository;
+    private final ObjectReader jsonReader;
+    private final String data;
+
+    public EmployeeLoader(EmployeeRepository repository, ObjectMapper mapper,
+                          @Value("${employee.data:}") String data) {
+        this.repository = repository;
+        this.jsonReader = mapper.readerFor(Employee.class);
+        this.data = data;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        if (!data.isEmpty()) {
+            long start = System.nanoTime();
+            long loaded = load(Paths.get(data));
+            log.info("Loaded {} employees from {} in {} ms", loaded, data, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /**
+     * @return the number of employees read
+     */
+    public long load(Path file) throws IOException {
+        return load(file, WINDOW);
+    }
+
+    long load(Path file, int maximumWindow) throws IOException {
+        boolean csv = file.getFileName().toString().endsWith(".csv");
+        long loaded = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            List<Employee> batch = new ArrayList<>();
+            while (position < size) {
+                long length = Math.min(maximumWindow, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int end = position + length == size ? (int) length : lastLineEnd(window);
+                if (end < 0) {
+                    throw new IOException("Line longer than " + maximumWindow + " bytes at offset " + position);
+                }
+                parse(window, end, csv && position == 0, csv, batch);
+                repository.saveAll(batch);
+                loaded += batch.size();
+                batch.clear();
+                position += end;
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * @return the offset after the last {@code \n} of the window, -1 if there is none
+     */
+    private static int lastLineEnd(MappedByteBuffer window) {
+        for (int i = window.limit() - 1; i >= 0; i--) {
+            if (window.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private void parse(MappedByteBuffer window, int end, boolean first, boolean csv, List<Employee> batch)
+            throws IOException {
+        byte[] line = new byte[256];
+        int start = 0;
+        while (start < end) {
+            int lineEnd = start;
+            while (lineEnd < end && window.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int length = lineEnd - start;
+            if (length > 0 && window.get(lineEnd - 1) == '\r') {
+                length--;
+            }
+            if (length > 0) {
+                if (line.length < length) {
+                    line = new byte[Math.max(length, line.length * 2)];
+                }
+                window.position(start);
+                window.get(line, 0, length);
+                Employee employee = csv ? csv(line, length) : jsonReader.readValue(line, 0, length);
+                boolean header = first && start == 0 && "name".equals(employee.getName());
+                if (!header) {
+                    batch.add(employee);
+                }
+            }
+            start = lineEnd + 1;
+        }
+    }
+
+    private static Employee csv(byte[] line, int length) throws IOException {
+        for (int i = 0; i < length; i++) {
+            if (line[i] == ',') {
+                return new Employee(
+                        new String(line, 0, i, StandardCharsets.UTF_8).trim(),
+                        new String(line, i + 1, length - i - 1, StandardCharsets.UTF_8).trim());
+            }
+        }
+        throw new IOException("Expected name,email: " + new String(line, 0, length, StandardCharsets.UTF_8));
+    }
+}
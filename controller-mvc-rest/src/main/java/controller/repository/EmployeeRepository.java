@@ -0,0 +1,120 @@
+package controller.repository;
+
+import controller.model.Employee;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Employees in memory, indexed by name and by the domain of their email.
+ *
+ * Both indexes are concurrent sorted collections, so reads never lock and pages are ranges of
+ * names after a cursor. Writes are serialized to keep the indexes consistent with each other.
+ */
+@Repository
+public class EmployeeRepository {
+
+    private final ConcurrentSkipListMap<String, Employee> byName = new ConcurrentSkipListMap<>();
+    private final Map<String, ConcurrentSkipListMap<String, Employee>> byDomain = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+
+    public Optional<Employee> findByName(String name) {
+        return Optional.ofNullable(byName.get(name));
+    }
+
+    /**
+     * @param after the name of the last employee of the previous page, {@code null} for the first page
+     */
+    public Page<Employee> findAll(String after, int limit) {
+        return page(byName, after, limit);
+    }
+
+    /**
+     * @param after the name of the last employee of the previous page, {@code null} for the first page
+     */
+    public Page<Employee> findByEmailDomain(String domain, String after, int limit) {
+        ConcurrentSkipListMap<String, Employee> employees = byDomain.get(domain.toLowerCase(Locale.ROOT));
+        return employees == null ? new Page<>(Collections.emptyList(), null) : page(employees, after, limit);
+    }
+
+    private static Page<Employee> page(ConcurrentSkipListMap<String, Employee> index, String after, int limit) {
+        Collection<Employee> employees = after == null ? index.values() : index.tailMap(after, false).values();
+        List<Employee> page = new ArrayList<>(Math.min(limit, 1024));
+        for (Employee employee : employees) {
+            if (page.size() == limit) {
+                return new Page<>(page, page.get(limit - 1).getName());
+            }
+            page.add(employee);
+        }
+        return new Page<>(page, null);
+    }
+
+    public long count() {
+        return byName.size();
+    }
+
+    public Employee save(Employee employee) {
+        synchronized (writeLock) {
+            put(employee);
+        }
+        return employee;
+    }
+
+    /**
+     * Saves many employees while taking the write lock once.
+     */
+    public void saveAll(Collection<Employee> employees) {
+        synchronized (writeLock) {
+            employees.forEach(this::put);
+        }
+    }
+
+    public boolean delete(String name) {
+        synchronized (writeLock) {
+            Employee removed = byName.remove(name);
+            if (removed == null) {
+                return false;
+            }
+            unindex(removed);
+            return true;
+        }
+    }
+
+    private void put(Employee employee) {
+        Employee previous = byName.put(employee.getName(), employee);
+        if (previous != null) {
+            unindex(previous);
+        }
+        String domain = domain(employee.getEmail());
+        if (domain != null) {
+            byDomain.computeIfAbsent(domain, d -> new ConcurrentSkipListMap<>()).put(employee.getName(), employee);
+        }
+    }
+
+    private void unindex(Employee employee) {
+        String domain = domain(employee.getEmail());
+        if (domain != null) {
+            Map<String, Employee> employees = byDomain.get(domain);
+            employees.remove(employee.getName());
+            if (employees.isEmpty()) {
+                byDomain.remove(domain);
+            }
+        }
+    }
+
+    static String domain(String email) {
+        if (email == null) {
+            return null;
+        }
+        int at = email.lastIndexOf('@');
+        return at < 0 || at == email.length() - 1 ? null : email.substring(at + 1).toLowerCase(Locale.ROOT);
+    }
+}
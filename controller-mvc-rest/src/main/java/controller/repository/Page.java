@@ -0,0 +1,28 @@
+package controller.repository;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * A page of results and the cursor of the next page, {@code null} on the last page.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class Page<T> {
+
+    private final List<T> items;
+    private final String next;
+
+    public Page(List<T> items, String next) {
+        this.items = items;
+        this.next = next;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNext() {
+        return next;
+    }
+}
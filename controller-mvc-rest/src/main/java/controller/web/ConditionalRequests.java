@@ -0,0 +1,41 @@
+package controller.web;
+
+import controller.model.Employee;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conditional GETs of employees: each representation has a strong ETag derived from
+ * {@link Employee#version()}, so a matching {@code If-None-Match} is answered with 304 before
+ * the body is rendered or marshalled.
+ */
+@Component
+public class ConditionalRequests {
+
+    private final String cacheControl;
+
+    /**
+     * @param maxAge how long clients may use a representation without revalidating it
+     */
+    public ConditionalRequests(@Value("${employee.http-cache.max-age:0s}") Duration maxAge) {
+        CacheControl control = maxAge.isZero() ? CacheControl.noCache() : CacheControl.maxAge(maxAge.getSeconds(), TimeUnit.SECONDS);
+        this.cacheControl = control.getHeaderValue();
+    }
+
+    /**
+     * Adds the caching headers and checks the preconditions of the request.
+     *
+     * @param representation distinguishes the ETags of the formats of the same employee
+     * @return {@code true} when the response is a 304 and the handler must not write a body
+     */
+    public boolean notModified(ServletWebRequest request, Employee employee, String representation) {
+        request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        return request.checkNotModified(employee.version() + "-" + representation);
+    }
+}
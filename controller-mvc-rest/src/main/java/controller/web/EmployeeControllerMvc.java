@@ -1,46 +1,55 @@
 package controller.web;
 
 import controller.model.Employee;
+import controller.repository.EmployeeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.bind.annotation.ResponseBody;
 
 @Controller
 @RequestMapping("mvc/employees")
 public class EmployeeControllerMvc {
 
-    Employee employee = new Employee();
+    @Autowired
+    EmployeeRepository repository;
 
-    @RequestMapping(value = "/{name}", method = RequestMethod.GET, produces = "application/json")
-    public @ResponseBody Employee getEmployeeInJSON(@PathVariable String name) {
+    @Autowired
+    ConditionalRequests conditionalRequests;
 
-        employee.setName(name);
-        employee.setEmail("employee1@example.com");
+    @RequestMapping(value = "/{name}", method = RequestMethod.GET, produces = "application/json")
+    public @ResponseBody Employee getEmployeeInJSON(@PathVariable String name, ServletWebRequest request) {
 
-        return employee;
+        Employee employee = employee(name);
+        return conditionalRequests.notModified(request, employee, "json") ? null : employee;
 
     }
 
     @RequestMapping(value = "/{name}.xml", method = RequestMethod.GET, produces = "application/xml")
-    public @ResponseBody Employee getEmployeeInXML(@PathVariable String name) {
-
-        employee.setName(name);
-        employee.setEmail("employee1@example.com");
+    public @ResponseBody Employee getEmployeeInXML(@PathVariable String name, ServletWebRequest request) {
 
-        return employee;
+        Employee employee = employee(name);
+        return conditionalRequests.notModified(request, employee, "xml") ? null : employee;
 
     }
 
     @RequestMapping(value = "/{name}.html", method = RequestMethod.GET, produces = "text/html")
-    public String getEmployeeInHTML(@PathVariable String name, Model model) {
+    public String getEmployeeInHTML(@PathVariable String name, Model model, ServletWebRequest request) {
 
-        employee.setName(name);
-        employee.setEmail("employee1@example.com");
+        Employee employee = employee(name);
+        if (conditionalRequests.notModified(request, employee, "html")) {
+            return null;
+        }
         model.addAttribute("employee", employee);
 
         return "employee";
- }
+    }
+
+    private Employee employee(String name) {
+        return repository.findByName(name).orElseThrow(() -> new EmployeeNotFoundException(name));
+    }
 }
@@ -1,54 +1,113 @@
 package controller.web;
 
+import controller.marshalling.StreamingListWriter;
 import controller.model.Employee;
+import controller.repository.EmployeeRepository;
+import controller.repository.Page;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.Locale;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("rest/employees")
 public class EmployeeControllerRest {
 
-    Employee employee = new Employee();
+    static final int MAX_PAGE_SIZE = 1000;
 
     @Autowired
-    TemplateEngine templateEngine;
+    EmployeeRepository repository;
 
-    @RequestMapping(value = "/{name}", method = RequestMethod.GET, produces = "application/json")
-    public Employee getEmployeeInJSON(@PathVariable String name) {
+    @Autowired
+    EmployeePages employeePages;
 
-        employee.setName(name);
-        employee.setEmail("employee1@example.com");
+    @Autowired
+    ConditionalRequests conditionalRequests;
 
-        return employee;
+    @Autowired
+    StreamingListWriter listWriter;
+
+    @RequestMapping(value = "/{name}", method = RequestMethod.GET, produces = "application/json")
+    public Employee getEmployeeInJSON(@PathVariable String name, ServletWebRequest request) {
+
+        Employee employee = employee(name);
+        return conditionalRequests.notModified(request, employee, "json") ? null : employee;
 
     }
 
     @RequestMapping(value = "/{name}.xml", method = RequestMethod.GET, produces = "application/xml")
-    public Employee getEmployeeInXML(@PathVariable String name) {
+    public Employee getEmployeeInXML(@PathVariable String name, ServletWebRequest request) {
 
-        employee.setName(name);
-        employee.setEmail("employee1@example.com");
-
-        return employee;
+        Employee employee = employee(name);
+        return conditionalRequests.notModified(request, employee, "xml") ? null : employee;
 
     }
 
     @RequestMapping(value = "/{name}.html", method = RequestMethod.GET, produces = "text/html")
-    public String getEmployeeInHTML(@PathVariable String name) {
+    public void getEmployeeInHTML(@PathVariable String name, ServletWebRequest request,
+                                  HttpServletResponse response) throws IOException {
+
+        Employee employee = employee(name);
+        if (!conditionalRequests.notModified(request, employee, "html")) {
+            employeePages.write(employee, response);
+        }
+    }
+
+    @RequestMapping(method = RequestMethod.GET, params = "names", produces = "application/json")
+    public ResponseEntity<StreamingResponseBody> getEmployeesInJSON(@RequestParam List<String> names) {
 
-        employee.setName(name);
-        employee.setEmail("employee1@example.com");
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .body(out -> listWriter.writeJson(employees(names), out));
+    }
 
-        Context ctx = new Context(Locale.getDefault());
-        ctx.setVariable("employee", employee);
+    @RequestMapping(method = RequestMethod.GET, params = "names", produces = "application/xml")
+    public ResponseEntity<StreamingResponseBody> getEmployeesInXML(@RequestParam List<String> names) {
+
+        return ResponseEntity.ok()
+                .contentType(new MediaType(MediaType.APPLICATION_XML, StandardCharsets.UTF_8))
+                .body(out -> listWriter.writeXml("Employees", employees(names), out));
+    }
+
+    /**
+     * Pages through all employees, or those with an email in {@code domain}, ordered by name.
+     * The {@code next} field of a page is the cursor of the following one.
+     */
+    @RequestMapping(method = RequestMethod.GET, params = "!names", produces = "application/json")
+    public Page<Employee> getEmployees(@RequestParam(required = false) String cursor,
+                                       @RequestParam(defaultValue = "100") int limit,
+                                       @RequestParam(required = false) String domain) {
+
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return domain == null
+                ? repository.findAll(cursor, size)
+                : repository.findByEmailDomain(domain, cursor, size);
+    }
+
+    private Employee employee(String name) {
+        return repository.findByName(name).orElseThrow(() -> new EmployeeNotFoundException(name));
+    }
 
-        return templateEngine.process("employee", ctx);
+    /**
+     * The employees of {@code names} that exist, looked up while the response is written.
+     */
+    private Iterable<Employee> employees(List<String> names) {
+        return () -> names.stream()
+                .map(repository::findByName)
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .iterator();
     }
 }
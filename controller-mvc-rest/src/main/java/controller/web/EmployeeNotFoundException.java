@@ -0,0 +1,12 @@
+package controller.web;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class EmployeeNotFoundException extends RuntimeException {
+
+    public EmployeeNotFoundException(String name) {
+        super("No employee named " + name);
+    }
+}
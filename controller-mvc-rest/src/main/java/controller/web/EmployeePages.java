@@ -0,0 +1,76 @@
+package controller.web;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import controller.model.Employee;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Renders the {@code employee} template into the response.
+ *
+ * Without a cache the template is written straight to the response {@code Writer}, so the page
+ * is never held as a {@code String}. With a cache the rendered bytes of each employee are kept
+ * for a while and copied to the response.
+ */
+@Component
+public class EmployeePages {
+
+    static final String CONTENT_TYPE = "text/html;charset=UTF-8";
+
+    private static final String TEMPLATE = "employee";
+
+    private final TemplateEngine templateEngine;
+    private final Locale locale = Locale.getDefault();
+    private final Cache<Employee, byte[]> pages;
+
+    /**
+     * @param maximumSize how many pages are cached, 0 disables the cache
+     * @param ttl         how long a page is cached after it is rendered
+     */
+    public EmployeePages(TemplateEngine templateEngine,
+                         @Value("${employee.page-cache.maximum-size:0}") long maximumSize,
+                         @Value("${employee.page-cache.ttl:1m}") Duration ttl) {
+        this.templateEngine = templateEngine;
+        this.pages = maximumSize > 0
+                ? Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttl).build()
+                : null;
+    }
+
+    public void write(Employee employee, HttpServletResponse response) throws IOException {
+        response.setContentType(CONTENT_TYPE);
+        if (pages == null) {
+            write(employee, response.getWriter());
+        } else {
+            byte[] page = pages.get(employee, this::render);
+            response.setContentLength(page.length);
+            response.getOutputStream().write(page);
+        }
+    }
+
+    /**
+     * Streams the page of {@code employee} to {@code writer}, bypassing the cache.
+     */
+    public void write(Employee employee, Writer writer) {
+        templateEngine.process(TEMPLATE, context(employee), writer);
+    }
+
+    private byte[] render(Employee employee) {
+        return templateEngine.process(TEMPLATE, context(employee)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Context context(Employee employee) {
+        Context ctx = new Context(locale);
+        ctx.setVariable("employee", employee);
+        return ctx;
+    }
+}
@@ -0,0 +1,86 @@
+package controller;
+
+import controller.model.Employee;
+import controller.repository.EmployeeRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Fires many parallel requests with different names: every response must echo its own name.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class EmployeeControllerConcurrencyTest {
+
+    private static final int THREADS = 32;
+    private static final int REQUESTS = 4000;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private EmployeeRepository repository;
+
+    @Before
+    public void setUp() {
+        List<Employee> employees = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            employees.add(new Employee("employee" + i, "employee" + i + "@example.com"));
+        }
+        repository.saveAll(employees);
+    }
+
+    @Test
+    public void restResponsesEchoTheirOwnName() throws Exception {
+        assertThat(mismatches("/rest/employees/{name}"), is(0L));
+    }
+
+    @Test
+    public void mvcResponsesEchoTheirOwnName() throws Exception {
+        assertThat(mismatches("/mvc/employees/{name}"), is(0L));
+    }
+
+    private long mismatches(String url) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Callable<Boolean>> requests = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                String name = "employee" + i;
+                requests.add(() -> {
+                    ResponseEntity<Employee> response = restTemplate.getForEntity(url, Employee.class, name);
+                    return response.getStatusCode() == HttpStatus.OK && name.equals(response.getBody().getName());
+                });
+            }
+            long start = System.nanoTime();
+            long mismatches = 0;
+            for (Future<Boolean> matches : executor.invokeAll(requests)) {
+                if (!matches.get()) {
+                    mismatches++;
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("%s: %d requests, %d mismatches, %.0f requests/s%n",
+                    url, REQUESTS, mismatches, REQUESTS * 1e9 / elapsed);
+            return mismatches;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
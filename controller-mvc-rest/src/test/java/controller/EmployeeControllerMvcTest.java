@@ -1,6 +1,8 @@
 package controller;
 
 import controller.model.Employee;
+import controller.repository.EmployeeRepository;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,6 +15,7 @@ import java.nio.charset.Charset;
 
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 @RunWith(SpringRunner.class)
@@ -21,6 +24,14 @@ public class EmployeeControllerMvcTest {
     @Autowired
     private TestRestTemplate restTemplate;
 
+    @Autowired
+    private EmployeeRepository repository;
+
+    @Before
+    public void setUp() {
+        repository.save(new Employee("Phil", "employee1@example.com"));
+    }
+
     @Test
     public void getEmployeeInJSON() {
         ResponseEntity<Employee> employee = this.restTemplate.getForEntity(
@@ -46,4 +57,17 @@ public class EmployeeControllerMvcTest {
         assertThat(employee.getHeaders().getContentType(), is(TEXT_HTML_UTF8_CHARSET));
         assertThat(employee.getBody(), containsString("Phil"));
     }
+
+    @Test
+    public void unchangedEmployeeIsNotModified() {
+        String etag = this.restTemplate.getForEntity("/mvc/employees/{name}.html", String.class, "Phil").getHeaders().getETag();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(etag);
+        ResponseEntity<String> employee = this.restTemplate.exchange(
+                "/mvc/employees/{name}.html", HttpMethod.GET, new HttpEntity<>(headers), String.class, "Phil");
+
+        assertThat(employee.getStatusCode(), is(HttpStatus.NOT_MODIFIED));
+        assertThat(employee.getBody(), is(nullValue()));
+    }
 }
@@ -1,6 +1,8 @@
 package controller;
 
 import controller.model.Employee;
+import controller.repository.EmployeeRepository;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,11 +10,15 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.http.*;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.thymeleaf.spring5.templateresolver.SpringResourceTemplateResolver;
 
 import java.nio.charset.Charset;
+import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 @RunWith(SpringRunner.class)
@@ -21,6 +27,19 @@ public class EmployeeControllerRestTest {
     @Autowired
     private TestRestTemplate restTemplate;
 
+    @Autowired
+    private EmployeeRepository repository;
+
+    @Before
+    public void setUp() {
+        repository.save(new Employee("Phil", "employee1@example.com"));
+        repository.save(new Employee("Ann", "ann@example.org"));
+        repository.save(new Employee("Bob", "bob@example.org"));
+    }
+
+    @Autowired
+    private SpringResourceTemplateResolver templateResolver;
+
     @Test
     public void getEmployeeInJSON() {
         ResponseEntity<Employee> employee = this.restTemplate.getForEntity(
@@ -46,4 +65,98 @@ public class EmployeeControllerRestTest {
         assertThat(employee.getHeaders().getContentType(), is(TEXT_HTML_UTF8_CHARSET));
         assertThat(employee.getBody(), containsString("Phil"));
     }
+
+    @Test
+    public void templatesAreCached() {
+        assertThat(templateResolver.isCacheable(), is(true));
+    }
+
+    @Test
+    public void getEmployeeInXML() {
+        ResponseEntity<String> employee = this.restTemplate.getForEntity(
+                "/rest/employees/{name}.xml", String.class, "Phil");
+
+        assertThat(employee.getStatusCode(), is(HttpStatus.OK));
+        assertThat(employee.getHeaders().getContentType().isCompatibleWith(MediaType.APPLICATION_XML), is(true));
+        assertThat(employee.getBody(), containsString("<Employee><name>Phil</name><email>employee1@example.com</email></Employee>"));
+    }
+
+    @Test
+    public void getEmployeesInJSON() {
+        ResponseEntity<Employee[]> employees = this.restTemplate.getForEntity(
+                "/rest/employees?names={names}", Employee[].class, "Phil,Nobody,Ann,Bob");
+
+        assertThat(employees.getStatusCode(), is(HttpStatus.OK));
+        assertThat(employees.getHeaders().getContentType(), is(MediaType.APPLICATION_JSON_UTF8));
+        assertThat(employees.getBody().length, is(3));
+        assertThat(employees.getBody()[2].getName(), is("Bob"));
+    }
+
+    @Test
+    public void getEmployeesInXML() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.ACCEPT, MediaType.APPLICATION_XML_VALUE);
+
+        ResponseEntity<String> employees = this.restTemplate.exchange(
+                "/rest/employees?names={names}", HttpMethod.GET, new HttpEntity<>(headers), String.class, "Phil,Ann");
+
+        assertThat(employees.getStatusCode(), is(HttpStatus.OK));
+        assertThat(employees.getHeaders().getContentType().isCompatibleWith(MediaType.APPLICATION_XML), is(true));
+        assertThat(employees.getBody(), containsString("<Employees><Employee><name>Phil</name>"));
+        assertThat(employees.getBody(), containsString("<Employee><name>Ann</name><email>ann@example.org</email></Employee></Employees>"));
+    }
+
+    @Test
+    public void unknownEmployeeIsNotFound() {
+        ResponseEntity<String> employee = this.restTemplate.getForEntity(
+                "/rest/employees/{name}", String.class, "Nobody");
+
+        assertThat(employee.getStatusCode(), is(HttpStatus.NOT_FOUND));
+    }
+
+    @Test
+    public void getEmployeesByPage() {
+        ResponseEntity<Map> first = this.restTemplate.getForEntity(
+                "/rest/employees?domain={domain}&limit=1", Map.class, "EXAMPLE.org");
+        ResponseEntity<Map> second = this.restTemplate.getForEntity(
+                "/rest/employees?domain={domain}&limit=1&cursor={cursor}", Map.class, "example.org", first.getBody().get("next"));
+
+        assertThat(first.getStatusCode(), is(HttpStatus.OK));
+        assertThat(first.getBody().get("items").toString(), containsString("name=Ann"));
+        assertThat(second.getBody().get("items").toString(), containsString("name=Bob"));
+        assertThat(second.getBody().containsKey("next"), is(false));
+    }
+
+    @Test
+    public void unchangedEmployeeIsNotModified() {
+        for (String url : new String[]{"/rest/employees/{name}", "/rest/employees/{name}.xml", "/rest/employees/{name}.html"}) {
+            ResponseEntity<String> employee = this.restTemplate.getForEntity(url, String.class, "Phil");
+            String etag = employee.getHeaders().getETag();
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setIfNoneMatch(etag);
+            ResponseEntity<String> revalidated = this.restTemplate.exchange(
+                    url, HttpMethod.GET, new HttpEntity<>(headers), String.class, "Phil");
+
+            assertThat(url, employee.getHeaders().getCacheControl(), is("no-cache"));
+            assertThat(url, revalidated.getStatusCode(), is(HttpStatus.NOT_MODIFIED));
+            assertThat(url, revalidated.getBody(), is(nullValue()));
+            assertThat(url, revalidated.getHeaders().getETag(), is(etag));
+        }
+    }
+
+    @Test
+    public void changedEmployeeIsSentAgain() {
+        String etag = this.restTemplate.getForEntity("/rest/employees/{name}", String.class, "Phil").getHeaders().getETag();
+        repository.save(new Employee("Phil", "phil@example.com"));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(etag);
+        ResponseEntity<Employee> employee = this.restTemplate.exchange(
+                "/rest/employees/{name}", HttpMethod.GET, new HttpEntity<>(headers), Employee.class, "Phil");
+
+        assertThat(employee.getStatusCode(), is(HttpStatus.OK));
+        assertThat(employee.getBody().getEmail(), is("phil@example.com"));
+        assertThat(employee.getHeaders().getETag(), is(not(etag)));
+    }
 }
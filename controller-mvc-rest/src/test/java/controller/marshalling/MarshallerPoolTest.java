@@ -0,0 +1,40 @@
+package controller.marshalling;
+
+import controller.model.Employee;
+import org.junit.Test;
+
+import javax.xml.bind.Marshaller;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class MarshallerPoolTest {
+
+    @Test
+    public void marshallersAreReused() throws Exception {
+        MarshallerPool pool = new MarshallerPool(1, Employee.class);
+
+        Marshaller first = pool.borrow();
+        first.setProperty(Marshaller.JAXB_FRAGMENT, true);
+        pool.release(first);
+        Marshaller second = pool.borrow();
+
+        assertThat(second, is(sameInstance(first)));
+        assertThat(second.getProperty(Marshaller.JAXB_FRAGMENT), is(false));
+    }
+
+    @Test
+    public void fullPoolDropsMarshallers() throws Exception {
+        MarshallerPool pool = new MarshallerPool(1, Employee.class);
+
+        Marshaller first = pool.borrow();
+        Marshaller second = pool.borrow();
+        pool.release(first);
+        pool.release(second);
+
+        assertThat(pool.pooled(), is(1));
+        assertThat(pool.isBound(Employee.class), is(true));
+        assertThat(pool.isBound(String.class), is(false));
+    }
+}
@@ -0,0 +1,58 @@
+package controller.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import controller.model.Employee;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class EmployeeLoaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final EmployeeRepository repository = new EmployeeRepository();
+    private final EmployeeLoader loader = new EmployeeLoader(repository, new ObjectMapper(), "");
+
+    @Test
+    public void loadsCsvAcrossWindows() throws IOException {
+        Path file = folder.newFile("employees.csv").toPath();
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("name,email\r\n");
+            for (int i = 0; i < 10_000; i++) {
+                writer.write("employee" + i + ",employee" + i + "@example.com\r\n");
+            }
+            writer.write("Jos\u00e9,jose@example.org");
+        }
+
+        long loaded = loader.load(file, 4096);
+
+        assertThat(loaded, is(10_001L));
+        assertThat(repository.count(), is(10_001L));
+        assertThat(repository.findByName("employee9999"), is(Optional.of(new Employee("employee9999", "employee9999@example.com"))));
+        assertThat(repository.findByName("Jos\u00e9").get().getEmail(), is("jose@example.org"));
+    }
+
+    @Test
+    public void loadsNdjson() throws IOException {
+        Path file = folder.newFile("employees.ndjson").toPath();
+        Files.write(file, ("{\"name\":\"Phil\",\"email\":\"phil@example.com\"}\n"
+                + "\n"
+                + "{\"name\":\"Ann\",\"email\":\"ann@example.org\"}\n").getBytes(StandardCharsets.UTF_8));
+
+        long loaded = loader.load(file, 64);
+
+        assertThat(loaded, is(2L));
+        assertThat(repository.findByEmailDomain("example.org", null, 10).getItems().get(0).getName(), is("Ann"));
+    }
+}
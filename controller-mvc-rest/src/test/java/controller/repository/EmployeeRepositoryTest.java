@@ -0,0 +1,66 @@
+package controller.repository;
+
+import controller.model.Employee;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+
+public class EmployeeRepositoryTest {
+
+    private final EmployeeRepository repository = new EmployeeRepository();
+
+    @Test
+    public void pagesFollowTheCursor() {
+        for (String name : new String[]{"d", "a", "c", "e", "b"}) {
+            repository.save(new Employee(name, name + "@example.com"));
+        }
+
+        List<String> names = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            Page<Employee> page = repository.findAll(cursor, 2);
+            page.getItems().forEach(employee -> names.add(employee.getName()));
+            cursor = page.getNext();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(names, contains("a", "b", "c", "d", "e"));
+        assertThat(pages, is(3));
+    }
+
+    @Test
+    public void lastFullPageHasNoCursor() {
+        repository.save(new Employee("a", "a@example.com"));
+        repository.save(new Employee("b", "b@example.com"));
+
+        assertThat(repository.findAll(null, 2).getNext(), is(nullValue()));
+    }
+
+    @Test
+    public void domainIndexFollowsUpdatesAndDeletes() {
+        repository.save(new Employee("a", "a@Example.com"));
+        repository.save(new Employee("b", "b@example.org"));
+        repository.save(new Employee("c", "c@example.com"));
+
+        repository.save(new Employee("a", "a@example.org"));
+        repository.delete("c");
+
+        assertThat(names(repository.findByEmailDomain("example.org", null, 10)), contains("a", "b"));
+        assertThat(names(repository.findByEmailDomain("example.com", null, 10)), is(empty()));
+        assertThat(names(repository.findByEmailDomain("example.org", "a", 10)), contains("b"));
+        assertThat(repository.count(), is(2L));
+    }
+
+    private static List<String> names(Page<Employee> page) {
+        return page.getItems().stream().map(Employee::getName).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,64 @@
+package controller.web;
+
+import controller.model.Employee;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.time.Duration;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class EmployeePagesTest {
+
+    private final TemplateEngine templateEngine = templateEngine();
+
+    @Test
+    public void cachedPagesAreTheStreamedPages() throws Exception {
+        EmployeePages streamed = new EmployeePages(templateEngine, 0, Duration.ofMinutes(1));
+        EmployeePages cached = new EmployeePages(templateEngine, 10, Duration.ofMinutes(1));
+        Employee phil = new Employee("Phil", "phil@example.com");
+
+        MockHttpServletResponse expected = new MockHttpServletResponse();
+        streamed.write(phil, expected);
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        cached.write(phil, first);
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        cached.write(phil, second);
+
+        assertThat(expected.getContentType(), is(EmployeePages.CONTENT_TYPE));
+        assertThat(expected.getContentAsString(), containsString("Employee: Phil"));
+        assertThat(first.getContentAsString(), is(expected.getContentAsString()));
+        assertThat(second.getContentAsString(), is(expected.getContentAsString()));
+        assertThat(second.getContentType(), is(EmployeePages.CONTENT_TYPE));
+        assertThat(second.getContentLength(), is(expected.getContentAsByteArray().length));
+    }
+
+    @Test
+    public void cachedPagesAreKeyedByEmployee() throws Exception {
+        EmployeePages cached = new EmployeePages(templateEngine, 10, Duration.ofMinutes(1));
+
+        MockHttpServletResponse phil = new MockHttpServletResponse();
+        cached.write(new Employee("Phil", "phil@example.com"), phil);
+        MockHttpServletResponse ann = new MockHttpServletResponse();
+        cached.write(new Employee("Ann", "ann@example.com"), ann);
+
+        assertThat(phil.getContentAsString(), containsString("Email: phil@example.com"));
+        assertThat(ann.getContentAsString(), containsString("Email: ann@example.com"));
+    }
+
+    private static TemplateEngine templateEngine() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        TemplateEngine templateEngine = new TemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+        return templateEngine;
+    }
+}
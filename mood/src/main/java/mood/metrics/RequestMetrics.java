@@ -0,0 +1,114 @@
+package mood.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Latency histograms by servlet name and response status.
+ *
+ * The histograms of a servlet are kept in an array indexed by status, so recording a response
+ * looks up the servlet and reads an array slot, without allocating a key.
+ */
+public class RequestMetrics implements RequestMetricsMXBean {
+
+    public static final String OBJECT_NAME = "mood:type=RequestMetrics";
+
+    /**
+     * Statuses outside 100-599 are recorded as 0.
+     */
+    private static final int STATUSES = 600;
+
+    private final ConcurrentMap<String, AtomicReferenceArray<LatencyHistogram>> histograms =
+            new ConcurrentHashMap<>();
+
+    public void record(String servlet, int status, long duration, TimeUnit unit) {
+        histogram(servlet, status).record(duration, unit);
+    }
+
+    LatencyHistogram histogram(String servlet, int status) {
+        AtomicReferenceArray<LatencyHistogram> byStatus = histograms.get(servlet);
+        if (byStatus == null) {
+            byStatus = histograms.computeIfAbsent(servlet, s -> new AtomicReferenceArray<>(STATUSES));
+        }
+        int index = status >= 100 && status < STATUSES ? status : 0;
+        LatencyHistogram histogram = byStatus.get(index);
+        if (histogram == null) {
+            byStatus.compareAndSet(index, null, new LatencyHistogram());
+            histogram = byStatus.get(index);
+        }
+        return histogram;
+    }
+
+    @Override
+    public List<ServletLatency> getLatencies() {
+        List<ServletLatency> latencies = new ArrayList<>();
+        for (Map.Entry<String, AtomicReferenceArray<LatencyHistogram>> entry : histograms.entrySet()) {
+            AtomicReferenceArray<LatencyHistogram> byStatus = entry.getValue();
+            for (int status = 0; status < byStatus.length(); status++) {
+                LatencyHistogram histogram = byStatus.get(status);
+                if (histogram != null) {
+                    latencies.add(ServletLatency.of(entry.getKey(), status, histogram.snapshot()));
+                }
+            }
+        }
+        latencies.sort((a, b) -> a.getServlet().equals(b.getServlet())
+                ? Integer.compare(a.getStatus(), b.getStatus())
+                : a.getServlet().compareTo(b.getServlet()));
+        return latencies;
+    }
+
+    @Override
+    public long percentile(String servlet, int status, double percent) {
+        AtomicReferenceArray<LatencyHistogram> byStatus = histograms.get(servlet);
+        LatencyHistogram histogram = byStatus == null || status < 0 || status >= STATUSES
+                ? null : byStatus.get(status);
+        return histogram == null ? -1 : histogram.snapshot().percentile(percent);
+    }
+
+    @Override
+    public void reset() {
+        histograms.clear();
+    }
+
+    /**
+     * Registers these metrics in the platform MBean server, replacing metrics registered before
+     * under the same name.
+     */
+    public ObjectName register() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            try {
+                server.registerMBean(this, name);
+            } catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(name);
+                server.registerMBean(this, name);
+            }
+            return name;
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register " + OBJECT_NAME, e);
+        }
+    }
+
+    public void unregister(ObjectName name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (InstanceNotFoundException e) {
+            // replaced and unregistered by another instance
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot unregister " + name, e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package mood.metrics;
+
+import java.util.List;
+
+/**
+ * The management interface of {@link RequestMetrics}, registered as {@value RequestMetrics#OBJECT_NAME}.
+ */
+public interface RequestMetricsMXBean {
+
+    /**
+     * The latencies of every servlet and response status seen so far.
+     */
+    List<ServletLatency> getLatencies();
+
+    /**
+     * The latency of the responses of a servlet with the given status at a percentile, in
+     * microseconds, or -1 when there are none.
+     */
+    long percentile(String servlet, int status, double percent);
+
+    void reset();
+}
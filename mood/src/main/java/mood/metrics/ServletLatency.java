@@ -0,0 +1,82 @@
+package mood.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * The latency percentiles, in microseconds, of the responses of one servlet with one status.
+ */
+public class ServletLatency {
+
+    private final String servlet;
+    private final int status;
+    private final long count;
+    private final double mean;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long p999;
+    private final long max;
+
+    @ConstructorProperties({"servlet", "status", "count", "mean", "p50", "p90", "p99", "p999", "max"})
+    public ServletLatency(String servlet, int status, long count, double mean,
+                          long p50, long p90, long p99, long p999, long max) {
+        this.servlet = servlet;
+        this.status = status;
+        this.count = count;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+    static ServletLatency of(String servlet, int status, LatencyHistogram.Snapshot snapshot) {
+        return new ServletLatency(servlet, status, snapshot.getCount(), snapshot.getMean(),
+                snapshot.percentile(50), snapshot.percentile(90), snapshot.percentile(99),
+                snapshot.percentile(99.9), snapshot.getMax());
+    }
+
+    public String getServlet() {
+        return servlet;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getP999() {
+        return p999;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return servlet + " " + status + ": count=" + count + ", mean=" + Math.round(mean)
+                + "us, p50=" + p50 + "us, p90=" + p90 + "us, p99=" + p99
+                + "us, p99.9=" + p999 + "us, max=" + max + "us";
+    }
+}
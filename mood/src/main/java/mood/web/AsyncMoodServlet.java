@@ -0,0 +1,210 @@
+package mood.web;
+
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.annotation.WebInitParam;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+
+/**
+ * Shows Duke's mood like {@link MoodServlet}, without holding a container thread.
+ *
+ * The request is put in asynchronous mode and its page is looked up on a small executor of
+ * {@code threads} threads, after the {@code upstream-latency} in milliseconds that stands for a
+ * slow upstream lookup. The page is then written without blocking, in chunks, each time a
+ * {@link WriteListener} is told the output can take more. At most {@code max-pending} requests
+ * wait at a time, the others get a 503.
+ */
+@WebServlet(urlPatterns = "/report/async", asyncSupported = true, initParams = {
+        @WebInitParam(name = "threads", value = "2"),
+        @WebInitParam(name = "max-pending", value = "1000"),
+        @WebInitParam(name = "upstream-latency", value = "0")})
+public class AsyncMoodServlet extends MoodServlet {
+
+    static final int CHUNK_SIZE = 8192;
+
+    private ScheduledThreadPoolExecutor executor;
+    private Semaphore pending;
+    private long upstreamLatency;
+
+    @Override
+    public void init() throws ServletException {
+        super.init();
+        int threads = Integer.parseInt(getInitParameter("threads", "2"));
+        AtomicInteger count = new AtomicInteger();
+        executor = new ScheduledThreadPoolExecutor(threads, task -> {
+            Thread thread = new Thread(task, "mood-async-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        pending = new Semaphore(Integer.parseInt(getInitParameter("max-pending", "1000")));
+        upstreamLatency = Long.parseLong(getInitParameter("upstream-latency", "0"));
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void doGet(
+            HttpServletRequest request,
+            HttpServletResponse response) throws ServletException, IOException {
+        processAsync(request, response);
+    }
+
+    @Override
+    public void doPost(
+            HttpServletRequest request,
+            HttpServletResponse response) throws ServletException, IOException {
+        processAsync(request, response);
+    }
+
+    private void processAsync(
+            HttpServletRequest request,
+            HttpServletResponse response) throws ServletException, IOException {
+        if (!request.isAsyncSupported()) {
+            super.doGet(request, response);
+            return;
+        }
+        if (!pending.tryAcquire()) {
+            unavailable(response);
+            return;
+        }
+        AsyncContext async = request.startAsync();
+        Pending state = new Pending(response);
+        async.addListener(state);
+        Runnable respond = () -> {
+            if (state.claim()) {
+                respond(request, response, async);
+            }
+        };
+        try {
+            if (upstreamLatency > 0) {
+                executor.schedule(respond, upstreamLatency, TimeUnit.MILLISECONDS);
+            } else {
+                executor.execute(respond);
+            }
+        } catch (RejectedExecutionException e) {
+            if (state.claim()) {
+                unavailable(response);
+                async.complete();
+            }
+        }
+    }
+
+    private void respond(HttpServletRequest request, HttpServletResponse response, AsyncContext async) {
+        try {
+            byte[] body = page(request, response);
+            ServletOutputStream out = response.getOutputStream();
+            out.setWriteListener(new PageWriter(body, out, async));
+        } catch (IOException | RuntimeException e) {
+            log("Cannot write the mood page", e);
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            async.complete();
+        }
+    }
+
+    private static void unavailable(HttpServletResponse response) {
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader("Retry-After", "1");
+    }
+
+    private String getInitParameter(String name, String defaultValue) {
+        String value = getInitParameter(name);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Writes a body while the output is ready, and completes the request after the last chunk.
+     */
+    static final class PageWriter implements WriteListener {
+
+        private final byte[] body;
+        private final ServletOutputStream out;
+        private final AsyncContext async;
+        private int written;
+
+        PageWriter(byte[] body, ServletOutputStream out, AsyncContext async) {
+            this.body = body;
+            this.out = out;
+            this.async = async;
+        }
+
+        @Override
+        public void onWritePossible() throws IOException {
+            while (out.isReady()) {
+                if (written == body.length) {
+                    async.complete();
+                    return;
+                }
+                int length = Math.min(CHUNK_SIZE, body.length - written);
+                out.write(body, written, length);
+                written += length;
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            async.complete();
+        }
+    }
+
+    /**
+     * Frees the place of a request once it is complete, and answers with a 503 when it times out
+     * before the page is looked up. The response is claimed once, by the lookup or the timeout, so
+     * that a page being written is never completed under it.
+     */
+    private final class Pending implements AsyncListener {
+
+        private final HttpServletResponse response;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        Pending(HttpServletResponse response) {
+            this.response = response;
+        }
+
+        /**
+         * @return whether the caller may write the response, {@code true} for a single caller
+         */
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            pending.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            if (claim()) {
+                unavailable(response);
+                event.getAsyncContext().complete();
+            }
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -1,9 +1,15 @@
 package mood.web;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.ServletException;
+import javax.servlet.annotation.WebInitParam;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -11,10 +17,33 @@ import javax.servlet.http.HttpServletResponse;
 
 
 /**
+ * Shows Duke's mood, set as a request attribute by {@link TimeOfDayFilter}.
+ *
+ * There are only a few pages, one per mood and context path. With the init parameter
+ * {@code prerendered} (the default) each page is rendered once to UTF-8 bytes, and to gzip for
+ * clients that accept it, and then copied to the response. Otherwise the page is printed on
+ * every request. {@link AsyncMoodServlet} serves the same pages asynchronously.
+ *
  * @see <a href="https://docs.oracle.com/javaee/7/tutorial/servlets015.htm#GKCPG">The Java EE Tutorial: The mood Example Application</a>
  */
-@WebServlet("/report")
+@WebServlet(urlPatterns = "/report", asyncSupported = true, initParams = @WebInitParam(name = "prerendered", value = "true"))
 public class MoodServlet extends HttpServlet {
+
+    private static final String CONTENT_TYPE = "text/html;charset=UTF-8";
+
+    /**
+     * Upper bound of the pages kept, in case the moods are not the ones of {@link TimeOfDayFilter}.
+     */
+    static final int MAX_PAGES = 64;
+
+    private boolean prerendered;
+    private final Map<String, Map<String, Page>> pages = new ConcurrentHashMap<>();
+
+    @Override
+    public void init() throws ServletException {
+        prerendered = !"false".equals(getInitParameter("prerendered"));
+    }
+
     /**
      * Handles the HTTP <code>GET</code> method.
      *
@@ -42,7 +71,11 @@ public class MoodServlet extends HttpServlet {
     private void processRequest(
             HttpServletRequest request,
             HttpServletResponse response) throws ServletException, IOException {
-        response.setContentType("text/html;charset=UTF-8");
+        if (prerendered) {
+            writePage(request, response);
+            return;
+        }
+        response.setContentType(CONTENT_TYPE);
 
         try (PrintWriter out = response.getWriter()) {
             out.println("<html>");
@@ -57,32 +90,152 @@ public class MoodServlet extends HttpServlet {
             String mood = (String) request.getAttribute("mood");
             out.println("<p>Duke's mood is: " + mood + "</p>");
 
-            switch (mood) {
-                case "sleepy":
-                    out.println("<img src=\"images/duke.snooze.gif\" /><br/>");
-                    break;
-                case "alert":
-                    out.println("<img src=\"images/duke.waving.gif\" /><br/>");
-                    break;
-                case "hungry":
-                    out.println("<img src=\"images/duke.cookies.gif\" /><br/>");
-                    break;
-                case "lethargic":
-                    out.println("<img src=\"images/duke.handsOnHips.gif\" /><br/>");
-                    break;
-                case "content":
-                    out.println("<img src=\"images/duke.pensive.gif\" /><br/>");
-                    break;
-                default:
-                    out.println("<img src=\"images/duke.thumbsup.gif\" /><br/>");
-                    break;
-            }
+            out.println("<img src=\"" + image(mood) + "\" /><br/>");
 
             out.println("</body>");
             out.println("</html>");
         }
     }
 
+    private void writePage(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.getOutputStream().write(page(request, response));
+    }
+
+    /**
+     * Looks up the pre-rendered page of the request and sets the headers of the response for it.
+     *
+     * @return the body of the response, compressed when the client accepts gzip
+     */
+    byte[] page(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String contextPath = request.getContextPath();
+        String mood = (String) request.getAttribute("mood");
+        Map<String, Page> byMood = pages.computeIfAbsent(contextPath, path -> new ConcurrentHashMap<>());
+        Page page = byMood.get(String.valueOf(mood));
+        if (page == null) {
+            page = new Page(render(contextPath, mood));
+            if (byMood.size() < MAX_PAGES) {
+                byMood.put(String.valueOf(mood), page);
+            }
+        }
+        byte[] body = page.identity;
+        if (acceptsGzip(request.getHeader("Accept-Encoding"))) {
+            body = page.gzip;
+            response.setHeader("Content-Encoding", "gzip");
+        }
+        response.setHeader("Vary", "Accept-Encoding");
+        response.setContentType(CONTENT_TYPE);
+        response.setContentLength(body.length);
+        return body;
+    }
+
+    /**
+     * The page printed by {@link #processRequest}, including its line separators.
+     */
+    static String render(String contextPath, String mood) {
+        String newLine = System.lineSeparator();
+        return "<html>" + newLine
+                + "<head>" + newLine
+                + "<title>Servlet MoodServlet</title>" + newLine
+                + "</head>" + newLine
+                + "<body>" + newLine
+                + "<h1>Servlet MoodServlet at " + contextPath + "</h1>" + newLine
+                + "<p>Duke's mood is: " + mood + "</p>" + newLine
+                + "<img src=\"" + image(mood) + "\" /><br/>" + newLine
+                + "</body>" + newLine
+                + "</html>" + newLine;
+    }
+
+    private static String image(String mood) {
+        if (mood == null) {
+            return "images/duke.thumbsup.gif";
+        }
+        switch (mood) {
+            case "sleepy":
+                return "images/duke.snooze.gif";
+            case "alert":
+                return "images/duke.waving.gif";
+            case "hungry":
+                return "images/duke.cookies.gif";
+            case "lethargic":
+                return "images/duke.handsOnHips.gif";
+            case "content":
+                return "images/duke.pensive.gif";
+            default:
+                return "images/duke.thumbsup.gif";
+        }
+    }
+
+    /**
+     * Scans the {@code Accept-Encoding} header without allocating, unless it has a {@code q} value.
+     *
+     * @return whether the header lists {@code gzip} or {@code *} without {@code q=0}
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        int length = acceptEncoding.length();
+        int start = 0;
+        while (start < length) {
+            int end = acceptEncoding.indexOf(',', start);
+            if (end < 0) {
+                end = length;
+            }
+            int parameters = acceptEncoding.indexOf(';', start);
+            if (parameters < 0 || parameters > end) {
+                parameters = end;
+            }
+            int nameStart = skipSpaces(acceptEncoding, start, parameters);
+            int nameEnd = parameters;
+            while (nameEnd > nameStart && acceptEncoding.charAt(nameEnd - 1) == ' ') {
+                nameEnd--;
+            }
+            int nameLength = nameEnd - nameStart;
+            if ((nameLength == 4 && acceptEncoding.regionMatches(true, nameStart, "gzip", 0, 4))
+                    || (nameLength == 1 && acceptEncoding.charAt(nameStart) == '*')) {
+                return !hasZeroQuality(acceptEncoding, parameters, end);
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    private static boolean hasZeroQuality(String header, int start, int end) {
+        int q = header.indexOf("q=", start);
+        if (q < 0 || q >= end) {
+            return false;
+        }
+        try {
+            return Double.parseDouble(header.substring(q + 2, end).trim()) == 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static int skipSpaces(String s, int start, int end) {
+        while (start < end && s.charAt(start) == ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * A rendered page, as is and gzip compressed.
+     */
+    private static final class Page {
+        final byte[] identity;
+        final byte[] gzip;
+
+        Page(String html) throws IOException {
+            identity = html.getBytes(StandardCharsets.UTF_8);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(identity.length);
+            try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+                out.write(identity);
+            }
+            gzip = compressed.toByteArray();
+        }
+    }
+
     /**
      * Handles the HTTP <code>POST</code> method.
      *
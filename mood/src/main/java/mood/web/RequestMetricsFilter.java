@@ -0,0 +1,109 @@
+package mood.web;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import mood.metrics.RequestMetrics;
+
+
+/**
+ * Records the latency of every response by servlet and status in {@link RequestMetrics}, which
+ * are published over JMX as {@value RequestMetrics#OBJECT_NAME}.
+ *
+ * Asynchronous requests are recorded when they complete. A request failing with an exception
+ * is recorded with the status 500 the container will send.
+ */
+@WebFilter(filterName = "RequestMetricsFilter", urlPatterns = {"/*"}, asyncSupported = true)
+public class RequestMetricsFilter implements Filter {
+
+    private final RequestMetrics metrics;
+    private ObjectName name;
+
+    public RequestMetricsFilter() {
+        this(new RequestMetrics());
+    }
+
+    public RequestMetricsFilter(RequestMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void init(FilterConfig filterConfig) throws ServletException {
+        name = metrics.register();
+    }
+
+    public void doFilter(
+            ServletRequest req,
+            ServletResponse res,
+            FilterChain chain) throws IOException, ServletException {
+        long start = System.nanoTime();
+        String servlet = servletName((HttpServletRequest) req);
+        boolean failed = true;
+        try {
+            chain.doFilter(req, res);
+            failed = false;
+        } finally {
+            if (!failed && req.isAsyncStarted()) {
+                req.getAsyncContext().addListener(new Completion(servlet, (HttpServletResponse) res, start));
+            } else {
+                int status = failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR
+                        : ((HttpServletResponse) res).getStatus();
+                metrics.record(servlet, status, System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    public void destroy() {
+        if (name != null) {
+            metrics.unregister(name);
+        }
+    }
+
+    public RequestMetrics getMetrics() {
+        return metrics;
+    }
+
+    static String servletName(HttpServletRequest request) {
+        String servlet = request.getHttpServletMapping().getServletName();
+        return servlet == null || servlet.isEmpty() ? request.getServletPath() : servlet;
+    }
+
+    private class Completion implements AsyncListener {
+
+        private final String servlet;
+        private final HttpServletResponse response;
+        private final long start;
+
+        Completion(String servlet, HttpServletResponse response, long start) {
+            this.servlet = servlet;
+            this.response = response;
+            this.start = start;
+        }
+
+        public void onComplete(AsyncEvent event) {
+            metrics.record(servlet, response.getStatus(), System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        public void onError(AsyncEvent event) {
+        }
+
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
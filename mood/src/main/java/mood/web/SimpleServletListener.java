@@ -1,5 +1,6 @@
 package mood.web;
 
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.servlet.ServletContextAttributeEvent;
@@ -12,12 +13,14 @@ import javax.servlet.annotation.WebListener;
 /**
  * Web application lifecycle listener.
  *
+ * Messages are only built when {@code INFO} is loggable, so a disabled logger costs one level check.
+ *
  * @see <a href="https://docs.oracle.com/javaee/7/tutorial/servlets015.htm#GKCPG">The Java EE Tutorial: The mood Example Application</a>
  */
 @WebListener
 public class SimpleServletListener implements ServletContextListener,
         ServletContextAttributeListener {
-    private static Logger log = Logger.getLogger("mood.web.SimpleServletListener");
+    private static final Logger log = Logger.getLogger("mood.web.SimpleServletListener");
 
     public void contextInitialized(ServletContextEvent sce) {
         log.info("Context initiallized");
@@ -28,18 +31,22 @@ public class SimpleServletListener implements ServletContextListener,
     }
 
     public void attributeAdded(ServletContextAttributeEvent event) {
-        log.info(
-                "Attribute " + event.getName()
-                        + " has been added, with value: " + event.getValue());
+        if (log.isLoggable(Level.INFO)) {
+            log.info("Attribute " + event.getName()
+                    + " has been added, with value: " + event.getValue());
+        }
     }
 
     public void attributeRemoved(ServletContextAttributeEvent event) {
-        log.info("Attribute " + event.getName() + " has been removed");
+        if (log.isLoggable(Level.INFO)) {
+            log.info("Attribute " + event.getName() + " has been removed");
+        }
     }
 
     public void attributeReplaced(ServletContextAttributeEvent event) {
-        log.info(
-                "Attribute " + event.getName()
-                        + " has been replaced, with value: " + event.getValue());
+        if (log.isLoggable(Level.INFO)) {
+            log.info("Attribute " + event.getName()
+                    + " has been replaced, with value: " + event.getValue());
+        }
     }
 }
@@ -1,8 +1,10 @@
 package mood.web;
 
 import java.io.IOException;
-import java.util.Calendar;
-import java.util.GregorianCalendar;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -11,81 +13,98 @@ import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.annotation.WebFilter;
-import javax.servlet.annotation.WebInitParam;
 
 
-/**`
+/**
+ * Sets the request attribute {@code mood} from the hour of the day.
+ *
+ * The mood of each hour is looked up once per hour: requests only read the current {@link Tick}
+ * and compare the time with its end, without allocating.
+ *
  * @see <a href="https://docs.oracle.com/javaee/7/tutorial/servlets015.htm#GKCPG">The Java EE Tutorial: The mood Example Application</a>
  */
-@WebFilter(filterName = "TimeOfDayFilter", urlPatterns = {"/*"}
-       , initParams = {@WebInitParam(name = "mood", value = "awake")})
+@WebFilter(filterName = "TimeOfDayFilter", urlPatterns = {"/*"}, asyncSupported = true)
 public class TimeOfDayFilter implements Filter {
-    private String mood = null;
+
+    private static final String[] MOODS = new String[24];
+
+    static {
+        for (int hour : new int[]{22, 23, 0, 1, 2, 3, 4, 5, 6, 7}) {
+            MOODS[hour] = "sleepy";
+        }
+        for (int hour : new int[]{8, 13, 18}) {
+            MOODS[hour] = "hungry";
+        }
+        for (int hour : new int[]{9, 10, 11, 12, 14, 16, 17}) {
+            MOODS[hour] = "alert";
+        }
+        MOODS[15] = "in need of coffee";
+        MOODS[19] = "content";
+        MOODS[20] = "content";
+        MOODS[21] = "lethargic";
+    }
+
+    private final Clock clock;
+    private volatile Tick tick = new Tick(0, 0, null);
+
+    public TimeOfDayFilter() {
+        this(Clock.systemDefaultZone());
+    }
+
+    public TimeOfDayFilter(Clock clock) {
+        this.clock = clock;
+    }
 
     public void init(FilterConfig filterConfig) throws ServletException {
-        mood = filterConfig.getInitParameter("mood");
     }
 
     public void doFilter(
             ServletRequest req,
             ServletResponse res,
             FilterChain chain) throws IOException, ServletException {
-        Calendar cal = GregorianCalendar.getInstance();
-
-        switch (cal.get(Calendar.HOUR_OF_DAY)) {
-            case 22:
-            case 23:
-            case 24:
-            case 1:
-            case 2:
-            case 3:
-            case 4:
-            case 5:
-            case 6:
-            case 7:
-                mood = "sleepy";
-
-                break;
-
-            case 8:
-            case 13:
-            case 18:
-                mood = "hungry";
-
-                break;
-
-            case 9:
-            case 10:
-            case 11:
-            case 12:
-            case 14:
-            case 16:
-            case 17:
-                mood = "alert";
-
-                break;
-
-            case 15:
-                mood = "in need of coffee";
-
-                break;
-
-            case 19:
-            case 20:
-                mood = "content";
-
-                break;
-
-            case 21:
-                mood = "lethargic";
+        req.setAttribute("mood", mood());
+        chain.doFilter(req, res);
+    }
 
-                break;
+    String mood() {
+        long now = clock.millis();
+        Tick current = tick;
+        if (now < current.start || now >= current.end) {
+            current = tick(now);
+            tick = current;
         }
+        return current.mood;
+    }
 
-        req.setAttribute("mood", mood);
-        chain.doFilter(req, res);
+    static String moodAt(int hour) {
+        return MOODS[hour];
+    }
+
+    /**
+     * Hours are computed in the zone of the clock, so they follow daylight saving time changes.
+     */
+    private Tick tick(long now) {
+        ZonedDateTime hour = ZonedDateTime.ofInstant(Instant.ofEpochMilli(now), clock.getZone())
+                .truncatedTo(ChronoUnit.HOURS);
+        return new Tick(hour.toInstant().toEpochMilli(), hour.plusHours(1).toInstant().toEpochMilli(),
+                MOODS[hour.getHour()]);
     }
 
     public void destroy() {
     }
+
+    /**
+     * The mood of the hour from {@code start} (inclusive) to {@code end} (exclusive), in epoch millis.
+     */
+    private static final class Tick {
+        final long start;
+        final long end;
+        final String mood;
+
+        Tick(long start, long end, String mood) {
+            this.start = start;
+            this.end = end;
+            this.mood = mood;
+        }
+    }
 }
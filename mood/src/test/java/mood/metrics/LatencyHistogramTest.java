@@ -0,0 +1,99 @@
+package mood.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsCoverEveryValueOnce() {
+        int previous = -1;
+        for (long micros = 0; micros < 1 << 20; micros++) {
+            int bucket = LatencyHistogram.bucket(micros);
+            assertThat(bucket, allOf(greaterThanOrEqualTo(previous), lessThanOrEqualTo(previous + 1)));
+            assertThat(micros <= LatencyHistogram.highestValue(bucket), is(true));
+            previous = bucket;
+        }
+        assertThat(LatencyHistogram.bucket(Long.MAX_VALUE), is(LatencyHistogram.BUCKETS - 1));
+    }
+
+    @Test
+    public void bucketsAreWithinThreePercent() {
+        for (long micros = 1; micros < 1L << 35; micros = micros * 3 / 2 + 1) {
+            long highest = LatencyHistogram.highestValue(LatencyHistogram.bucket(micros));
+            assertThat(micros + " in " + highest, highest - micros <= micros * 0.032, is(true));
+        }
+    }
+
+    @Test
+    public void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 1000; millis++) {
+            histogram.record(millis, TimeUnit.MILLISECONDS);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertThat(snapshot.getCount(), is(1000L));
+        assertThat(snapshot.getMean(), is(500500.0));
+        assertThat(snapshot.getMax(), is(1000000L));
+        assertWithin(snapshot.percentile(50), 500000);
+        assertWithin(snapshot.percentile(90), 900000);
+        assertWithin(snapshot.percentile(99), 990000);
+        assertThat(snapshot.percentile(100), is(1000000L));
+        assertWithin(snapshot.percentile(0), 1000);
+    }
+
+    @Test
+    public void emptyHistogram() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+
+        assertThat(snapshot.getCount(), is(0L));
+        assertThat(snapshot.getMean(), is(0.0));
+        assertThat(snapshot.percentile(99), is(0L));
+    }
+
+    @Test
+    public void concurrentRecordingsAreAllCounted() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int threads = 8;
+        int recordings = 100_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < recordings; i++) {
+                    histogram.record(i % 1000, TimeUnit.MICROSECONDS);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES), is(true));
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertThat(snapshot.getCount(), is((long) threads * recordings));
+        assertThat(snapshot.getMax(), is(999L));
+        assertThat(snapshot.getMean(), is(499.5));
+    }
+
+    private static void assertWithin(long actual, long expected) {
+        assertThat(actual, allOf(greaterThanOrEqualTo(expected), lessThanOrEqualTo(expected + expected / 32)));
+    }
+}
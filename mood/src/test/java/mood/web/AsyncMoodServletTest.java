@@ -0,0 +1,268 @@
+package mood.web;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "server.tomcat.max-threads=" + AsyncMoodServletTest.CONTAINER_THREADS)
+public class AsyncMoodServletTest {
+
+    /**
+     * More than the clients of the highest load, so that blocking code gets a thread per request.
+     */
+    static final int CONTAINER_THREADS = 400;
+    private static final int UPSTREAM_LATENCY = 200;
+
+    @TestConfiguration
+    static class SlowUpstream {
+
+        @Bean
+        public ServletRegistrationBean<AsyncMoodServlet> slowMoodServlet() {
+            return asyncMoodServlet("/report/slow", "1000");
+        }
+
+        @Bean
+        public ServletRegistrationBean<AsyncMoodServlet> busyMoodServlet() {
+            return asyncMoodServlet("/report/busy", "1");
+        }
+
+        @Bean
+        public ServletRegistrationBean<BlockingMoodServlet> blockingMoodServlet() {
+            ServletRegistrationBean<BlockingMoodServlet> registration =
+                    new ServletRegistrationBean<>(new BlockingMoodServlet(), "/report/blocking");
+            registration.setName("/report/blocking");
+            return registration;
+        }
+
+        private static ServletRegistrationBean<AsyncMoodServlet> asyncMoodServlet(String path, String maxPending) {
+            ServletRegistrationBean<AsyncMoodServlet> registration =
+                    new ServletRegistrationBean<>(new AsyncMoodServlet(), path);
+            registration.setName(path);
+            registration.setAsyncSupported(true);
+            registration.addInitParameter("threads", "2");
+            registration.addInitParameter("max-pending", maxPending);
+            registration.addInitParameter("upstream-latency", String.valueOf(UPSTREAM_LATENCY));
+            return registration;
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    public void asyncPageIsThePrerenderedPage() {
+        ResponseEntity<String> sync = restTemplate.getForEntity("/report", String.class);
+
+        ResponseEntity<String> async = restTemplate.getForEntity("/report/async", String.class);
+
+        assertThat(async.getStatusCodeValue(), is(200));
+        assertThat(async.getBody(), is(sync.getBody()));
+        assertThat(async.getHeaders().getContentLength(), is(sync.getHeaders().getContentLength()));
+    }
+
+    @Test
+    public void requestsOverMaxPendingAreRejected() throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Integer>> statuses = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                statuses.add(clients.submit(() -> get("/report/busy")));
+            }
+
+            assertThat(Arrays.asList(statuses.get(0).get(), statuses.get(1).get()),
+                    containsInAnyOrder(200, 503));
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    @Test
+    public void threadCountStaysFlatAsConcurrencyGrows() throws Exception {
+        Load low = load("/report/slow", 20);
+        Load high = load("/report/slow", 200);
+        // the same upstream latency on the container threads, which grow with the clients
+        Load blocking = load("/report/blocking", 200);
+
+        assertThat(blocking.peakThreads, greaterThan(low.peakThreads + 100));
+        assertThat(high.peakThreads, lessThanOrEqualTo(low.peakThreads + 10));
+        // every request waits for the upstream, one after the other would take 200 * 3 * 200ms = 120s
+        assertThat(high.elapsedMillis, lessThan(6000L));
+    }
+
+    @Test
+    public void pagesAreWrittenInChunksWhileTheOutputIsReady() throws Exception {
+        byte[] body = new byte[AsyncMoodServlet.CHUNK_SIZE * 3 + 1];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) i;
+        }
+        ThrottledOutputStream out = new ThrottledOutputStream(2);
+        AsyncContext async = mock(AsyncContext.class);
+        AsyncMoodServlet.PageWriter writer = new AsyncMoodServlet.PageWriter(body, out, async);
+
+        writer.onWritePossible();
+        assertThat(out.written.size(), is(AsyncMoodServlet.CHUNK_SIZE * 2));
+        verify(async, times(0)).complete();
+
+        out.ready = 3;
+        writer.onWritePossible();
+
+        assertThat(out.written.toByteArray(), is(body));
+        verify(async, times(1)).complete();
+    }
+
+    private Load load(String path, int concurrency) throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        AtomicInteger peak = new AtomicInteger();
+        sampler.scheduleAtFixedRate(() -> peak.accumulateAndGet(serverThreads(), Math::max), 0, 5, TimeUnit.MILLISECONDS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> done = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                done.add(clients.submit(() -> {
+                    start.await();
+                    for (int request = 0; request < 3; request++) {
+                        assertThat(get(path), is(200));
+                    }
+                    return null;
+                }));
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : done) {
+                future.get();
+            }
+            return new Load(peak.get(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+        } finally {
+            sampler.shutdownNow();
+            clients.shutdownNow();
+        }
+    }
+
+    private static int serverThreads() {
+        int threads = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("http-nio-") || thread.getName().startsWith("mood-async-")) {
+                threads++;
+            }
+        }
+        return threads;
+    }
+
+    private int get(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+        int status = connection.getResponseCode();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            if (in != null) {
+                StreamUtils.drain(in);
+            }
+        }
+        return status;
+    }
+
+    private static final class Load {
+        final int peakThreads;
+        final long elapsedMillis;
+
+        Load(int peakThreads, long elapsedMillis) {
+            this.peakThreads = peakThreads;
+            this.elapsedMillis = elapsedMillis;
+        }
+    }
+
+    /**
+     * Waits for the upstream on the container thread, as {@link MoodServlet} would with a slow lookup.
+     */
+    static final class BlockingMoodServlet extends MoodServlet {
+
+        @Override
+        public void doGet(HttpServletRequest request, HttpServletResponse response)
+                throws ServletException, IOException {
+            try {
+                Thread.sleep(UPSTREAM_LATENCY);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.doGet(request, response);
+        }
+    }
+
+    /**
+     * An output that is ready for a number of writes, and then waits for the test.
+     */
+    private static final class ThrottledOutputStream extends ServletOutputStream {
+
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        int ready;
+
+        ThrottledOutputStream(int ready) {
+            this.ready = ready;
+        }
+
+        @Override
+        public boolean isReady() {
+            return ready-- > 0;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+        }
+
+        @Override
+        public void write(int b) {
+            written.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            written.write(b, off, len);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package mood.web;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletConfig;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class MoodServletTest {
+
+    @Test
+    public void prerenderedPagesAreThePrintedPages() throws Exception {
+        MoodServlet printed = servlet("false");
+        MoodServlet prerendered = servlet("true");
+        for (String mood : new String[]{"sleepy", "alert", "hungry", "lethargic", "content", "in need of coffee"}) {
+            MockHttpServletResponse expected = get(printed, mood, null);
+            MockHttpServletResponse actual = get(prerendered, mood, null);
+            MockHttpServletResponse again = get(prerendered, mood, null);
+
+            assertThat(mood, actual.getContentAsString(), is(expected.getContentAsString()));
+            assertThat(mood, again.getContentAsString(), is(expected.getContentAsString()));
+            assertThat(mood, actual.getContentType(), is("text/html;charset=UTF-8"));
+            assertThat(mood, actual.getContentLength(), is(expected.getContentAsByteArray().length));
+            assertThat(mood, actual.getHeader("Content-Encoding"), is(nullValue()));
+        }
+    }
+
+    @Test
+    public void gzipIsSentToClientsThatAcceptIt() throws Exception {
+        MoodServlet servlet = servlet("true");
+        MockHttpServletResponse plain = get(servlet, "alert", null);
+
+        MockHttpServletResponse compressed = get(servlet, "alert", "deflate, gzip;q=0.8, br");
+
+        assertThat(compressed.getHeader("Content-Encoding"), is("gzip"));
+        assertThat(compressed.getHeader("Vary"), is("Accept-Encoding"));
+        assertThat(compressed.getContentLength(), is(compressed.getContentAsByteArray().length));
+        assertThat(gunzip(compressed.getContentAsByteArray()), is(plain.getContentAsString()));
+    }
+
+    @Test
+    public void acceptEncodingIsParsed() {
+        assertThat(MoodServlet.acceptsGzip("gzip, deflate, br"), is(true));
+        assertThat(MoodServlet.acceptsGzip("br,GZIP"), is(true));
+        assertThat(MoodServlet.acceptsGzip("*"), is(true));
+        assertThat(MoodServlet.acceptsGzip("gzip;q=0"), is(false));
+        assertThat(MoodServlet.acceptsGzip("br, gzip ; q=0.0"), is(false));
+        assertThat(MoodServlet.acceptsGzip("x-gzip, deflate"), is(false));
+        assertThat(MoodServlet.acceptsGzip("identity"), is(false));
+        assertThat(MoodServlet.acceptsGzip(null), is(false));
+    }
+
+    private static MoodServlet servlet(String prerendered) throws Exception {
+        MockServletConfig config = new MockServletConfig();
+        config.addInitParameter("prerendered", prerendered);
+        MoodServlet servlet = new MoodServlet();
+        servlet.init(config);
+        return servlet;
+    }
+
+    private static MockHttpServletResponse get(MoodServlet servlet, String mood, String acceptEncoding) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/mood/report");
+        request.setContextPath("/mood");
+        request.setAttribute("mood", mood);
+        if (acceptEncoding != null) {
+            request.addHeader("Accept-Encoding", acceptEncoding);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        servlet.doGet(request, response);
+        return response;
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+        }
+    }
+}
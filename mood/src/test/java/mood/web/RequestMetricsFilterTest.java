@@ -0,0 +1,136 @@
+package mood.web;
+
+import mood.metrics.RequestMetrics;
+import mood.metrics.ServletLatency;
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockFilterConfig;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+
+public class RequestMetricsFilterTest {
+
+    private final RequestMetrics metrics = new RequestMetrics();
+    private final RequestMetricsFilter filter = new RequestMetricsFilter(metrics);
+
+    @Test
+    public void recordsByServletAndStatus() throws Exception {
+        request("/report", new Status(200));
+        request("/report", new Status(200));
+        request("/report", new Status(404));
+        request("/other", new Status(200));
+
+        List<ServletLatency> latencies = metrics.getLatencies();
+
+        assertThat(latencies, hasSize(3));
+        assertThat(latencies.get(0).getServlet(), is("/other"));
+        assertThat(latencies.get(1).getServlet(), is("/report"));
+        assertThat(latencies.get(1).getStatus(), is(200));
+        assertThat(latencies.get(1).getCount(), is(2L));
+        assertThat(latencies.get(2).getStatus(), is(404));
+        assertThat(latencies.get(2).getCount(), is(1L));
+        assertThat(metrics.percentile("/report", 200, 99), greaterThanOrEqualTo(0L));
+        assertThat(metrics.percentile("/report", 500, 99), is(-1L));
+    }
+
+    @Test
+    public void failedRequestsAreRecordedAsServerErrors() throws Exception {
+        HttpServlet failing = new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException {
+                throw new ServletException("failed");
+            }
+        };
+
+        try {
+            request("/report", failing);
+            fail();
+        } catch (ServletException expected) {
+        }
+
+        assertThat(metrics.getLatencies().get(0).getStatus(), is(500));
+    }
+
+    @Test
+    public void asyncRequestsAreRecordedWhenComplete() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/report");
+        request.setServletPath("/report");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        HttpServlet async = new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                req.startAsync();
+            }
+        };
+
+        filter.doFilter(request, response, new MockFilterChain(async));
+        assertThat(metrics.getLatencies(), hasSize(0));
+
+        AsyncContext context = request.getAsyncContext();
+        response.setStatus(201);
+        context.complete();
+
+        assertThat(metrics.getLatencies(), hasSize(1));
+        assertThat(metrics.getLatencies().get(0).getStatus(), is(201));
+    }
+
+    @Test
+    public void publishesPercentilesOverJmx() throws Exception {
+        filter.init(new MockFilterConfig());
+        try {
+            request("/report", new Status(200));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(RequestMetrics.OBJECT_NAME);
+
+            CompositeData[] latencies = (CompositeData[]) server.getAttribute(name, "Latencies");
+
+            assertThat(latencies, arrayWithSize(1));
+            assertThat(latencies[0].get("servlet"), is("/report"));
+            assertThat(latencies[0].get("count"), is(1L));
+        } finally {
+            filter.destroy();
+        }
+        assertThat(ManagementFactory.getPlatformMBeanServer()
+                .isRegistered(new ObjectName(RequestMetrics.OBJECT_NAME)), is(false));
+    }
+
+    private void request(String path, HttpServlet servlet) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setServletPath(path);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain(servlet));
+    }
+
+    private static class Status extends HttpServlet {
+
+        private final int status;
+
+        Status(int status) {
+            this.status = status;
+        }
+
+        @Override
+        protected void service(HttpServletRequest req, HttpServletResponse resp) {
+            resp.setStatus(status);
+        }
+    }
+}
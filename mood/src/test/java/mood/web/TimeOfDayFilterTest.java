@@ -0,0 +1,87 @@
+package mood.web;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class TimeOfDayFilterTest {
+
+    private static final String[] EXPECTED = {
+            "sleepy", "sleepy", "sleepy", "sleepy", "sleepy", "sleepy", "sleepy", "sleepy",
+            "hungry", "alert", "alert", "alert", "alert", "hungry", "alert", "in need of coffee",
+            "alert", "alert", "hungry", "content", "content", "lethargic", "sleepy", "sleepy"};
+
+    @Test
+    public void everyHourHasAMood() throws Exception {
+        for (int hour = 0; hour < 24; hour++) {
+            Instant time = LocalDateTime.of(2019, 10, 1, hour, 30).toInstant(ZoneOffset.UTC);
+            TimeOfDayFilter filter = new TimeOfDayFilter(Clock.fixed(time, ZoneOffset.UTC));
+            MockHttpServletRequest request = new MockHttpServletRequest();
+
+            filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+            assertThat("hour " + hour, request.getAttribute("mood"), is(EXPECTED[hour]));
+        }
+    }
+
+    @Test
+    public void moodChangesWithTheHour() {
+        MutableClock clock = new MutableClock(LocalDateTime.of(2019, 10, 1, 14, 59, 59).toInstant(ZoneOffset.UTC));
+        TimeOfDayFilter filter = new TimeOfDayFilter(clock);
+
+        assertThat(filter.mood(), is("alert"));
+        clock.advance(Duration.ofSeconds(1));
+        assertThat(filter.mood(), is("in need of coffee"));
+        clock.advance(Duration.ofHours(1));
+        assertThat(filter.mood(), is("alert"));
+        clock.advance(Duration.ofHours(-2));
+        assertThat(filter.mood(), is("alert"));
+    }
+
+    @Test
+    public void hoursFollowTheZoneOfTheClock() {
+        Instant utcMidday = LocalDateTime.of(2019, 10, 1, 12, 0).toInstant(ZoneOffset.UTC);
+
+        TimeOfDayFilter filter = new TimeOfDayFilter(Clock.fixed(utcMidday, ZoneId.of("Asia/Tokyo")));
+
+        assertThat(filter.mood(), is(TimeOfDayFilter.moodAt(21)));
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
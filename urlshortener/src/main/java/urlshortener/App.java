@@ -1,82 +1,394 @@
 package urlshortener;
 
-import com.google.common.hash.Hashing;
-import org.apache.commons.validator.routines.UrlValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.util.MultiValueMap;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import springfox.documentation.builders.PathSelectors;
 import springfox.documentation.builders.RequestHandlerSelectors;
 import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
+import urlshortener.batch.BatchShortener;
+import urlshortener.cache.IdFilter;
+import urlshortener.cache.RedirectCache;
+import urlshortener.id.Base62HashIdGenerator;
+import urlshortener.id.CounterIdGenerator;
+import urlshortener.id.IdGenerator;
+import urlshortener.id.IdRegistry;
+import urlshortener.id.Idempotency;
+import urlshortener.id.Murmur3IdGenerator;
+import urlshortener.id.SnowflakeIdGenerator;
+import urlshortener.ratelimit.RateLimit;
+import urlshortener.ratelimit.RateLimitFilter;
+import urlshortener.redirect.RedirectPolicy;
+import urlshortener.stats.ClickEvent;
+import urlshortener.stats.ClickRecorder;
+import urlshortener.stats.ClickStats;
+import urlshortener.stats.StatsSweeper;
+import urlshortener.store.Link;
+import urlshortener.store.LinkLimits;
+import urlshortener.store.LogUrlStore;
+import urlshortener.store.RedisUrlStore;
+import urlshortener.store.ShardedUrlStore;
+import urlshortener.store.ShardsEndpoint;
+import urlshortener.store.UrlStore;
+import urlshortener.validation.LinkValidator;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
 
 @SpringBootApplication
 @Controller
-@EnableSwagger2
 public class App {
+
+    /**
+     * Redis key of the counter used by the {@code counter} id strategy.
+     */
+    static final String COUNTER_KEY = "urlshortener:id:counter";
+
     public static void main(String[] args) {
         SpringApplication.run(App.class, args);
     }
 
-    @Bean
-    public Docket api() { 
-        return new Docket(DocumentationType.SWAGGER_2)  
-          .select()                                  
-          .apis(RequestHandlerSelectors.any())              
-          .paths(PathSelectors.any())                          
-          .build();                                           
+    /**
+     * Springfox only documents Spring MVC, so it is left out of the {@code reactive} profile.
+     */
+    @Configuration
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @EnableSwagger2
+    static class Swagger {
+        @Bean
+        public Docket api() { 
+            return new Docket(DocumentationType.SWAGGER_2)  
+              .select()                                  
+              .apis(RequestHandlerSelectors.any())              
+              .paths(PathSelectors.any())                          
+              .build();                                           
+        }
     }
     
+    @Bean
+    public static RedirectCache redirectCache(
+            @Value("${urlshortener.cache.maximum-size:100000}") long maximumSize,
+            @Value("${urlshortener.cache.ttl:10m}") Duration ttl,
+            @Value("${urlshortener.cache.negative-ttl:5s}") Duration negativeTtl) {
+        return new RedirectCache(maximumSize, ttl, negativeTtl);
+    }
+
+    /**
+     * With the ids in a local log, the filter only knows the ids of this instance.
+     */
+    @Bean
+    public static IdFilter idFilter(UrlStore urlStore, StringRedisTemplate sharedData,
+            @Value("${urlshortener.filter.expected-ids:0}") long expectedIds,
+            @Value("${urlshortener.filter.fpp:0.01}") double fpp,
+            @Value("${urlshortener.filter.check-interval:1s}") Duration checkInterval,
+            @Value("${urlshortener.filter.rescan-interval:1h}") Duration rescanInterval,
+            @Value("${urlshortener.store.directory:}") String directory) {
+        return new IdFilter(urlStore, unlessLocal(sharedData, directory), expectedIds, fpp, checkInterval, rescanInterval);
+    }
+
+    /**
+     * Only for the servlet stack, which serves every endpoint outside of the {@code reactive} profile.
+     * With the ids in a local log, the limits are those of this instance alone.
+     */
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @ConditionalOnExpression("!'${urlshortener.ratelimit.limits:}'.trim().isEmpty()")
+    public static RateLimitFilter rateLimitFilter(StringRedisTemplate sharedData,
+            @Value("${urlshortener.store.directory:}") String directory,
+            @Value("${urlshortener.ratelimit.limits:}") String limits,
+            @Value("${urlshortener.ratelimit.client-header:}") String clientHeader,
+            @Value("${urlshortener.ratelimit.api-keys:}") String apiKeys,
+            @Value("${urlshortener.ratelimit.max-clients:100000}") int maxClients,
+            @Value("${urlshortener.ratelimit.sync-interval:1s}") Duration syncInterval) {
+        return new RateLimitFilter(RateLimit.limits(limits), clientHeader.trim(), RateLimitFilter.apiKeys(apiKeys), maxClients,
+                unlessLocal(sharedData, directory), syncInterval, Clock.systemUTC());
+    }
+
+    /**
+     * @return {@code sharedData}, or {@code null} if the ids are kept in a local log, which leaves Redis out
+     */
+    private static StringRedisTemplate unlessLocal(StringRedisTemplate sharedData, String directory) {
+        return directory.trim().isEmpty() ? sharedData : null;
+    }
+
+    @Bean
+    public static RedirectPolicy redirectPolicy(
+            @Value("${urlshortener.redirect.status:307}") int status,
+            @Value("${urlshortener.redirect.max-age:0s}") Duration maxAge) {
+        return new RedirectPolicy(status, maxAge);
+    }
+
+    @Bean
+    public static LinkValidator linkValidator(@Value("${urlshortener.validation.cache-size:0}") long cacheSize) {
+        return new LinkValidator(cacheSize);
+    }
+
+    @Bean
+    public static IdGenerator idGenerator(StringRedisTemplate sharedData,
+            @Value("${urlshortener.id.strategy:murmur3}") String strategy,
+            @Value("${urlshortener.id.length:7}") int length,
+            @Value("${urlshortener.id.block-size:1000}") long blockSize,
+            @Value("${urlshortener.id.node:0}") int node,
+            @Value("${urlshortener.store.directory:}") String directory) {
+        if ("counter".equals(strategy) && !directory.trim().isEmpty()) {
+            throw new IllegalStateException("The counter id strategy needs Redis, unlike urlshortener.store.directory");
+        }
+        switch (strategy) {
+            case "murmur3":
+                return new Murmur3IdGenerator();
+            case "base62":
+                return new Base62HashIdGenerator(length);
+            case "counter":
+                return new CounterIdGenerator(size -> sharedData.opsForValue().increment(COUNTER_KEY, size), blockSize);
+            case "snowflake":
+                return new SnowflakeIdGenerator(node, Clock.systemUTC());
+            default:
+                throw new IllegalArgumentException("Unknown urlshortener.id.strategy " + strategy);
+        }
+    }
+
+    /**
+     * The ids are kept in the Redis of {@code spring.redis}, unless {@code urlshortener.store.directory}
+     * names a directory for a local log, or {@code urlshortener.store.nodes} lists nodes to shard them over.
+     */
+    @Bean
+    public static UrlStore urlStore(StringRedisTemplate sharedData,
+            @Value("${urlshortener.store.directory:}") String directory,
+            @Value("${urlshortener.store.segment-size:64MB}") DataSize segmentSize,
+            @Value("${urlshortener.store.compaction-interval:1m}") Duration compactionInterval,
+            @Value("${urlshortener.store.nodes:}") String nodes,
+            @Value("${urlshortener.store.virtual-nodes:160}") int virtualNodes,
+            @Value("${spring.redis.timeout:2s}") Duration timeout,
+            @Value("${spring.redis.lettuce.pool.max-active:8}") int poolSize) {
+        if (!directory.trim().isEmpty()) {
+            return new LogUrlStore(Paths.get(directory.trim()), Math.toIntExact(segmentSize.toBytes()), compactionInterval);
+        }
+        if (nodes.trim().isEmpty()) {
+            return new RedisUrlStore(sharedData);
+        }
+        return new ShardedUrlStore(ShardedUrlStore.nodes(nodes), virtualNodes,
+                node -> RedisUrlStore.connect(node, timeout, poolSize));
+    }
+
+    @Bean
+    @ConditionalOnExpression("'${urlshortener.store.directory:}'.trim().isEmpty() && !'${urlshortener.store.nodes:}'.trim().isEmpty()")
+    public static ShardsEndpoint shardsEndpoint(UrlStore urlStore) {
+        return new ShardsEndpoint((ShardedUrlStore) urlStore);
+    }
+
+    @Bean
+    public static IdRegistry idRegistry(UrlStore urlStore, IdGenerator idGenerator,
+            @Value("${urlshortener.id.max-attempts:8}") int maxAttempts) {
+        return new IdRegistry(urlStore, idGenerator, maxAttempts);
+    }
+
+    /**
+     * With the ids in a local log, the keys are only kept in process.
+     */
+    @Bean
+    public static Idempotency idempotency(IdRegistry idRegistry, StringRedisTemplate sharedData,
+            @Value("${urlshortener.idempotency.recent-size:10000}") long recentSize,
+            @Value("${urlshortener.idempotency.key-ttl:24h}") Duration keyTtl,
+            @Value("${urlshortener.store.directory:}") String directory) {
+        return new Idempotency(idRegistry, unlessLocal(sharedData, directory), recentSize, keyTtl);
+    }
+
+    @Bean
+    public static BatchShortener batchShortener(UrlStore urlStore, IdRegistry idRegistry,
+            LinkValidator linkValidator, RedirectCache redirectCache, IdFilter idFilter, ObjectMapper mapper,
+            @Value("${urlshortener.batch.chunk-size:1000}") int chunkSize) {
+        return new BatchShortener(urlStore, idRegistry, linkValidator, redirectCache, idFilter, mapper, chunkSize);
+    }
+
+    /**
+     * The click statistics are kept in Redis, so they are left out with the ids in a local log.
+     */
+    @Bean
+    @ConditionalOnExpression("'${urlshortener.store.directory:}'.trim().isEmpty()")
+    public static ClickRecorder clickRecorder(StringRedisTemplate sharedData,
+            @Value("${urlshortener.stats.buffer-size:65536}") int bufferSize,
+            @Value("${urlshortener.stats.flush-interval:1s}") Duration flushInterval,
+            @Value("${urlshortener.stats.max-referrers:100}") int maxReferrers) {
+        return new ClickRecorder(sharedData, bufferSize, flushInterval, maxReferrers);
+    }
+
+    @Bean
+    @ConditionalOnExpression("'${urlshortener.store.directory:}'.trim().isEmpty()")
+    public static StatsSweeper statsSweeper(StringRedisTemplate sharedData, UrlStore urlStore,
+            @Value("${urlshortener.stats.sweep-interval:1h}") Duration sweepInterval) {
+        return new StatsSweeper(sharedData, urlStore, sweepInterval);
+    }
+
     @Autowired
-    private StringRedisTemplate sharedData;
+    private UrlStore urlStore;
+
+    @Autowired
+    private RedirectCache redirectCache;
+
+    @Autowired
+    private IdFilter idFilter;
+
+    @Autowired
+    private Idempotency idempotency;
+
+    @Autowired
+    private LinkValidator linkValidator;
+
+    @Autowired(required = false)
+    private ClickRecorder clickRecorder;
+
+    @Autowired
+    private BatchShortener batchShortener;
+
+    @Autowired
+    private RedirectPolicy redirectPolicy;
 
     @GetMapping("/api/{id}")
-    public ResponseEntity<Void> redirectTo(@PathVariable String id) {
-        String key = sharedData.opsForValue().get(id);
-        if (key != null) {
+    public ResponseEntity<Void> redirectTo(@PathVariable String id, HttpServletRequest req) {
+        if (!idFilter.mightContain(id)) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        // links with a click limit are only cached to know that they have one
+        Link link = redirectCache.redirect(id, urlStore::redirect, urlStore::click);
+        if (link != null) {
+            if (clickRecorder != null) {
+                clickRecorder.record(new ClickEvent(id, req.getHeader(HttpHeaders.REFERER),
+                        req.getHeader(HttpHeaders.USER_AGENT), req.getRemoteAddr()));
+            }
             HttpHeaders responseHeaders = new HttpHeaders();
-            responseHeaders.setLocation(URI.create(key));
-            return new ResponseEntity<>(responseHeaders, HttpStatus.TEMPORARY_REDIRECT);
+            responseHeaders.setLocation(URI.create(link.getUrl()));
+            if (!link.getLimits().isNone()) {
+                // never cached by clients, so that they come back once the link is gone
+                return new ResponseEntity<>(responseHeaders, HttpStatus.TEMPORARY_REDIRECT);
+            }
+            if (redirectPolicy.getCacheControl() != null) {
+                responseHeaders.setCacheControl(redirectPolicy.getCacheControl());
+            }
+            return new ResponseEntity<>(responseHeaders, redirectPolicy.getStatus());
         } else {
+            idFilter.falsePositive();
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @GetMapping("/api/{id}/stats")
+    public ResponseEntity<ClickStats> stats(@PathVariable String id) {
+        if (clickRecorder == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_IMPLEMENTED);
+        }
+        if (!idFilter.mightContain(id) || redirectCache.resolve(id, urlStore::resolve) == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
+        return new ResponseEntity<>(clickRecorder.stats(id), HttpStatus.OK);
     }
 
     @PostMapping("/api")
-    public ResponseEntity<String> shortener(@RequestParam("url") String url, HttpServletRequest req) {
-        UrlValidator urlValidator = new UrlValidator(new String[]{"http", "https"});
-        if (url != null && urlValidator.isValid(url)) {
-            String id = Hashing.murmur3_32().hashString(url, StandardCharsets.UTF_8).toString();
-            sharedData.opsForValue().set(id, url);
-            URI location = URI.create(req.getRequestURL().append("/"+id).toString());
-            HttpHeaders responseHeaders = new HttpHeaders();
-            responseHeaders.setLocation(location);
-            return new ResponseEntity<>(responseHeaders, HttpStatus.CREATED);
-        } else {
-            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    public ResponseEntity<String> shortener(@RequestParam("url") String url,
+            @RequestParam(value = "ttl", required = false) String ttl,
+            @RequestParam(value = "maxClicks", required = false) Long maxClicks,
+            @RequestHeader(value = Idempotency.HEADER, required = false) String key, HttpServletRequest req) {
+        Instant now = Instant.now();
+        LinkLimits limits;
+        try {
+            limits = limits(ttl, maxClicks, now);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+        String id;
+        try {
+            id = idempotency.recent(url, key, limits, now);
+            if (id == null) {
+                if (!linkValidator.isValid(url)) {
+                    return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+                }
+                id = idempotency.register(url, key, limits, now);
+                redirectCache.put(id, new Link(url, limits));
+                idFilter.put(id);
+            }
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.UNPROCESSABLE_ENTITY);
+        } catch (Idempotency.KeyInUseException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+        } catch (UnsupportedOperationException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_IMPLEMENTED);
+        }
+        URI location = URI.create(req.getRequestURL().append("/"+id).toString());
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.setLocation(location);
+        return new ResponseEntity<>(responseHeaders, HttpStatus.CREATED);
+    }
+
+    /**
+     * @param ttl       how long the link lives, e.g. {@code 7d} or {@code PT12H}, or {@code null}
+     * @param maxClicks how many redirects the link serves, or {@code null}
+     * @param now       the instant {@code ttl} counts from
+     */
+    private static LinkLimits limits(String ttl, Long maxClicks, Instant now) {
+        Instant expiresAt = null;
+        if (ttl != null && !ttl.isEmpty()) {
+            Duration duration = DurationStyle.detectAndParse(ttl);
+            if (duration.isNegative() || duration.isZero()) {
+                throw new IllegalArgumentException("ttl must be positive");
+            }
+            expiresAt = now.plus(duration);
+        }
+        return new LinkLimits(expiresAt, maxClicks != null ? maxClicks : 0);
+    }
+
+    /**
+     * A body that is not a JSON array is a bad request, if it shows before the first results are sent.
+     */
+    @PostMapping(value = "/api/batch", produces = "application/x-ndjson")
+    public void batch(HttpServletRequest req, HttpServletResponse res) throws IOException {
+        String location = ServletUriComponentsBuilder.fromContextPath(req).path("/api/").toUriString();
+        try {
+            Iterator<String> urls = req.getContentType() != null
+                    && MediaType.APPLICATION_JSON.includes(MediaType.parseMediaType(req.getContentType()))
+                    ? BatchShortener.jsonArray(req.getInputStream())
+                    : BatchShortener.lines(req.getInputStream());
+            res.setContentType("application/x-ndjson");
+            batchShortener.shorten(urls, location, res.getOutputStream());
+        } catch (IllegalArgumentException e) {
+            res.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            res.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            res.getOutputStream().write(e.getMessage().getBytes(StandardCharsets.UTF_8));
         }
     }
 }
@@ -0,0 +1,57 @@
+package urlshortener.batch;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of shortening one URL of a batch: either an id and its location or an error.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchResult {
+
+    private final String url;
+    private String id;
+    private String location;
+    private String error;
+
+    private BatchResult(String url, String id, String location, String error) {
+        this.url = url;
+        this.id = id;
+        this.location = location;
+        this.error = error;
+    }
+
+    static BatchResult created(String url, String id, String location) {
+        return new BatchResult(url, id, location, null);
+    }
+
+    static BatchResult error(String url, String error) {
+        return new BatchResult(url, null, null, error);
+    }
+
+    void reassign(String id, String location) {
+        this.id = id;
+        this.location = location;
+    }
+
+    void fail(String error) {
+        this.id = null;
+        this.location = null;
+        this.error = error;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,251 @@
+package urlshortener.batch;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import urlshortener.cache.IdFilter;
+import urlshortener.cache.RedirectCache;
+import urlshortener.id.IdRegistry;
+import urlshortener.store.UrlStore;
+import urlshortener.validation.LinkValidator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+/**
+ * Shortens a stream of URLs in chunks.
+ *
+ * Each chunk is validated and given ids in parallel, written to the {@link UrlStore} as one batch
+ * (a single pipeline of {@code SET NX} commands per Redis node) and reported back as newline delimited JSON, one {@link BatchResult}
+ * per URL and in the same order, before the next chunk is read.
+ */
+public class BatchShortener {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final UrlStore urlStore;
+    private final IdRegistry idRegistry;
+    private final LinkValidator linkValidator;
+    private final RedirectCache redirectCache;
+    private final IdFilter idFilter;
+    private final ObjectWriter writer;
+    private final int chunkSize;
+
+    public BatchShortener(UrlStore urlStore, IdRegistry idRegistry, LinkValidator linkValidator,
+                          RedirectCache redirectCache, IdFilter idFilter, ObjectMapper mapper, int chunkSize) {
+        this.urlStore = urlStore;
+        this.idRegistry = idRegistry;
+        this.linkValidator = linkValidator;
+        this.redirectCache = redirectCache;
+        this.idFilter = idFilter;
+        this.writer = mapper.writerFor(BatchResult.class);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Shortens every URL returned by {@code urls} and writes the results to {@code out}.
+     *
+     * @param urls     the URLs to shorten
+     * @param location the prefix that followed by an id is the location of a short URL
+     * @param out      where the results are written, flushed after each chunk
+     * @throws IllegalArgumentException if {@code urls} turn out malformed before any result is written;
+     *                                  afterwards the results written are followed by an error
+     */
+    public void shorten(Iterator<String> urls, String location, OutputStream out) throws IOException {
+        List<String> chunk = new ArrayList<>(chunkSize);
+        boolean flushed = false;
+        try {
+            while (urls.hasNext()) {
+                chunk.add(urls.next());
+                if (chunk.size() == chunkSize || !urls.hasNext()) {
+                    List<BatchResult> results = chunk.parallelStream()
+                            .map(url -> prepare(url, location))
+                            .collect(Collectors.toList());
+                    store(results, location);
+                    idFilter.putAll(results.stream()
+                            .filter(result -> result.getError() == null)
+                            .map(BatchResult::getId)
+                            .collect(Collectors.toList()));
+                    for (BatchResult result : results) {
+                        out.write(writer.writeValueAsBytes(result));
+                        out.write('\n');
+                    }
+                    out.flush();
+                    flushed = true;
+                    chunk.clear();
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            if (!flushed) {
+                throw e;
+            }
+            // the status was sent with the first chunk, the URLs of the current one are left out
+            out.write(writer.writeValueAsBytes(BatchResult.error(null, e.getMessage())));
+            out.write('\n');
+        }
+    }
+
+    private BatchResult prepare(String url, String location) {
+        if (url == null) {
+            return BatchResult.error(null, "not a string");
+        }
+        if (!linkValidator.isValid(url)) {
+            return BatchResult.error(url, "invalid url");
+        }
+        String id = idRegistry.getGenerator().generate(url, 0);
+        return BatchResult.created(url, id, location + id);
+    }
+
+    private void store(List<BatchResult> results, String location) {
+        List<BatchResult> valid = results.stream()
+                .filter(result -> result.getError() == null)
+                .collect(Collectors.toList());
+        if (valid.isEmpty()) {
+            return;
+        }
+        List<Boolean> created = urlStore.setIfAbsent(
+                valid.stream().map(BatchResult::getId).collect(Collectors.toList()),
+                valid.stream().map(BatchResult::getUrl).collect(Collectors.toList()));
+
+        // Ids already taken are fine when they point to the same URL, otherwise it is a collision
+        List<BatchResult> existing = new ArrayList<>();
+        for (int i = 0; i < valid.size(); i++) {
+            redirectCache.invalidate(valid.get(i).getId());
+            if (!created.get(i)) {
+                existing.add(valid.get(i));
+            }
+        }
+        if (existing.isEmpty()) {
+            return;
+        }
+        List<String> current = urlStore.get(existing.stream().map(BatchResult::getId).collect(Collectors.toList()));
+        for (int i = 0; i < existing.size(); i++) {
+            if (!existing.get(i).getUrl().equals(current.get(i))) {
+                reassign(existing.get(i), location);
+            }
+        }
+    }
+
+    /**
+     * Collisions are rare, so they are probed one by one outside of the pipeline.
+     */
+    private void reassign(BatchResult result, String location) {
+        try {
+            String id = idRegistry.register(result.getUrl());
+            result.reassign(id, location + id);
+        } catch (IllegalStateException e) {
+            result.fail("id collision");
+        }
+    }
+
+    /**
+     * Reads the URLs of a JSON array of strings without loading the whole array. Elements that
+     * are not strings are skipped and returned as {@code null}, to be reported as errors.
+     *
+     * @throws IllegalArgumentException if the input is not a JSON array, also while iterating
+     */
+    public static Iterator<String> jsonArray(InputStream in) throws IOException {
+        JsonParser parser = JSON.createParser(in);
+        if (nextToken(parser) != JsonToken.START_ARRAY) {
+            throw new IllegalArgumentException("Expected a JSON array of URLs");
+        }
+        return new UrlIterator() {
+            @Override
+            protected boolean read() throws IOException {
+                JsonToken token = nextToken(parser);
+                if (token == null || token == JsonToken.END_ARRAY) {
+                    return false;
+                }
+                if (token == JsonToken.VALUE_STRING) {
+                    next = parser.getText();
+                } else {
+                    try {
+                        parser.skipChildren();
+                    } catch (JsonProcessingException e) {
+                        throw malformed(e);
+                    }
+                    next = null;
+                }
+                return true;
+            }
+        };
+    }
+
+    private static JsonToken nextToken(JsonParser parser) throws IOException {
+        try {
+            return parser.nextToken();
+        } catch (JsonProcessingException e) {
+            throw malformed(e);
+        }
+    }
+
+    private static IllegalArgumentException malformed(JsonProcessingException e) {
+        return new IllegalArgumentException("Malformed JSON array of URLs: " + e.getOriginalMessage(), e);
+    }
+
+    /**
+     * Reads the URLs of a newline delimited list, skipping blank lines.
+     */
+    public static Iterator<String> lines(InputStream in) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        return new UrlIterator() {
+            @Override
+            protected boolean read() throws IOException {
+                String line;
+                do {
+                    line = reader.readLine();
+                } while (line != null && line.trim().isEmpty());
+                next = line == null ? null : line.trim();
+                return line != null;
+            }
+        };
+    }
+
+    private abstract static class UrlIterator implements Iterator<String> {
+        protected String next;
+        private boolean read;
+        private boolean done;
+
+        /**
+         * Reads the next element into {@link #next}, which is {@code null} if it is not a URL.
+         *
+         * @return {@code false} at the end of the input
+         */
+        protected abstract boolean read() throws IOException;
+
+        @Override
+        public boolean hasNext() {
+            if (!read && !done) {
+                try {
+                    done = !read();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                read = !done;
+            }
+            return !done;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            read = false;
+            return next;
+        }
+    }
+}
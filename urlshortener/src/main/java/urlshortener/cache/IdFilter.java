@@ -0,0 +1,267 @@
+package urlshortener.cache;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import urlshortener.store.UrlStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom filter of the existing ids, checked by {@code App.redirectTo} before the {@link RedirectCache},
+ * so that the random ids of scanners are answered without any I/O and without filling the cache with
+ * negative entries.
+ *
+ * The filter is filled in the background from {@link UrlStore#scanIds} at startup, and lets every id
+ * through until then. The ids created by this instance are added with {@link #put}, which publishes
+ * them on the Redis channel {@link #CHANNEL} for the other instances; an id created elsewhere is
+ * unknown here until its message arrives. Ids are never removed from the filter, a deleted id only
+ * costs a false positive.
+ *
+ * Redis delivers each message at most once, to the subscribers connected at the time, and Lettuce
+ * subscribes again after a reconnect without telling. So every {@code checkInterval} the filter
+ * publishes a probe of its own on the channel: until the previous one came back, the subscription
+ * may have missed ids and every id is let through. The store is listed again once a probe comes
+ * back, first of all at startup, and every {@code rescanInterval} for the gaps too short to notice.
+ *
+ * An {@code expectedIds} of 0 disables the filter. Past {@code expectedIds} ids the false positive
+ * rate grows beyond {@code fpp}, see the {@code idfilter.expected.fpp} gauge.
+ */
+public class IdFilter implements MeterBinder, InitializingBean, DisposableBean {
+
+    private static final Log log = LogFactory.getLog(IdFilter.class);
+
+    public static final String CHANNEL = "urlshortener:ids";
+
+    static final int SCAN_COUNT = 1000;
+
+    private final UrlStore store;
+    private final StringRedisTemplate sharedData;
+    private final BloomFilter<CharSequence> filter;
+    private final long bytes;
+    private final Duration checkInterval;
+    private final long rescanNanos;
+    private final ScheduledExecutorService loader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "id-filter");
+        thread.setDaemon(true);
+        return thread;
+    });
+    RedisMessageListenerContainer subscriber;
+    private volatile boolean loaded;
+    private long lastScan;
+
+    /**
+     * Probes are {@code ?<token of this instance> <sequence>}, the ids never start with {@code ?}.
+     */
+    private final String probe = "?" + UUID.randomUUID();
+    private long probesSent;
+    private volatile long probesReceived = -1;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    /**
+     * @param store       the store listed at startup
+     * @param sharedData  the Redis the new ids are published on, or {@code null} for a single instance
+     * @param expectedIds the number of ids the filter is sized for, 0 to disable it
+     * @param fpp         the false positive rate up to {@code expectedIds} ids
+     * @param checkInterval  how often the subscription to the new ids is probed
+     * @param rescanInterval how often the store is listed again, though no gap was noticed
+     */
+    public IdFilter(UrlStore store, StringRedisTemplate sharedData, long expectedIds, double fpp,
+                    Duration checkInterval, Duration rescanInterval) {
+        this.store = store;
+        this.sharedData = sharedData;
+        this.checkInterval = checkInterval;
+        this.rescanNanos = rescanInterval.toNanos();
+        this.filter = expectedIds > 0 ? BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedIds, fpp) : null;
+        this.bytes = filter != null ? serializedSize(filter) : 0;
+    }
+
+    public boolean isEnabled() {
+        return filter != null;
+    }
+
+    /**
+     * Whether the filter is filled and up to date, otherwise it lets every id through.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return {@code false} if {@code id} is certainly unknown, {@code true} if it may exist
+     */
+    public boolean mightContain(String id) {
+        if (!loaded || filter.mightContain(id)) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * Reports that an id let through by {@link #mightContain} turned out to be unknown.
+     */
+    public void falsePositive() {
+        if (loaded) {
+            falsePositives.increment();
+        }
+    }
+
+    /**
+     * Adds an id created by this instance, and publishes it for the other instances.
+     */
+    public void put(String id) {
+        if (filter != null) {
+            filter.put(id);
+            publish(id);
+        }
+    }
+
+    public void putAll(Collection<String> ids) {
+        if (filter != null && !ids.isEmpty()) {
+            ids.forEach(filter::put);
+            publish(String.join(" ", ids));
+        }
+    }
+
+    private void publish(String ids) {
+        if (sharedData == null) {
+            return;
+        }
+        try {
+            sharedData.convertAndSend(CHANNEL, ids);
+        } catch (RuntimeException e) {
+            log.warn("Could not publish new ids, other instances answer 404 for them until they list them", e);
+        }
+    }
+
+    private void received(String ids) {
+        if (ids.startsWith("?")) {
+            if (ids.startsWith(probe + " ")) {
+                probesReceived = Long.parseLong(ids.substring(probe.length() + 1));
+            }
+            return;
+        }
+        for (String id : ids.split(" ")) {
+            filter.put(id);
+        }
+    }
+
+    /**
+     * Subscribes to the new ids before listing the store, so that no id created meanwhile is missed.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        if (filter == null) {
+            return;
+        }
+        if (sharedData == null) {
+            loader.scheduleWithFixedDelay(() -> {
+                if (!loaded) {
+                    scan();
+                }
+            }, 0, checkInterval.toNanos(), TimeUnit.NANOSECONDS);
+            return;
+        }
+        subscriber = new RedisMessageListenerContainer();
+        subscriber.setConnectionFactory(sharedData.getConnectionFactory());
+        subscriber.addMessageListener((message, pattern) ->
+                received(new String(message.getBody(), StandardCharsets.UTF_8)), new ChannelTopic(CHANNEL));
+        subscriber.afterPropertiesSet();
+        subscriber.start();
+        loader.scheduleWithFixedDelay(this::check, 0, checkInterval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Lists the store if the last probe came back and the filter is not up to date, or has not been
+     * listed for {@code rescanInterval}, then sends the next probe.
+     */
+    void check() {
+        if (probesReceived == probesSent) {
+            if (!loaded || System.nanoTime() - lastScan >= rescanNanos) {
+                scan();
+            }
+        } else if (loaded) {
+            loaded = false;
+            log.warn("Probe " + (probesReceived + 1) + " of the new ids did not come back, unknown ids are looked up"
+                    + " until the ids are listed again");
+        }
+        probesSent++;
+        try {
+            sharedData.convertAndSend(CHANNEL, probe + " " + probesSent);
+        } catch (RuntimeException e) {
+            log.debug("Could not send probe " + probesSent, e);
+        }
+    }
+
+    private void scan() {
+        try {
+            long start = System.nanoTime();
+            store.scanIds(SCAN_COUNT, ids -> ids.forEach(filter::put));
+            lastScan = start;
+            if (!loaded) {
+                loaded = true;
+                log.info("Loaded about " + filter.approximateElementCount() + " ids in "
+                        + (System.nanoTime() - start) / 1_000_000 + " ms, " + bytes + " bytes");
+            }
+        } catch (RuntimeException e) {
+            log.error("Could not load the ids, unknown ids are looked up", e);
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        loader.shutdownNow();
+        if (subscriber != null) {
+            subscriber.destroy();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (filter == null) {
+            return;
+        }
+        FunctionCounter.builder("idfilter.rejected", rejected, LongAdder::sum)
+                .description("Unknown ids answered by the filter").register(registry);
+        FunctionCounter.builder("idfilter.false.positives", falsePositives, LongAdder::sum)
+                .description("Unknown ids let through by the filter").register(registry);
+        Gauge.builder("idfilter.expected.fpp", filter, BloomFilter::expectedFpp)
+                .description("False positive rate expected from the bits set").register(registry);
+        Gauge.builder("idfilter.ids", filter, BloomFilter::approximateElementCount).register(registry);
+        Gauge.builder("idfilter.memory", this, self -> self.bytes).baseUnit("bytes").register(registry);
+    }
+
+    private static long serializedSize(BloomFilter<?> filter) {
+        CountingOutputStream out = new CountingOutputStream(ByteStreams.nullOutputStream());
+        try {
+            filter.writeTo(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.getCount();
+    }
+}
@@ -0,0 +1,142 @@
+package urlshortener.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import urlshortener.store.Link;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * In-process cache in front of the Redis lookup done by {@code App.redirectTo}.
+ *
+ * The cache is bounded and evicts with the TinyLFU policy of Caffeine. Known ids expire
+ * after {@code ttl}; unknown ids are cached as negative entries for {@code negativeTtl},
+ * which should be short as other nodes may create the id in the meantime. Links that expire
+ * sooner are only kept until they expire.
+ */
+public class RedirectCache implements MeterBinder {
+
+    private final Cache<String, Optional<Link>> cache;
+
+    public RedirectCache(long maximumSize, Duration ttl, Duration negativeTtl) {
+        long ttlNanos = ttl.toNanos();
+        long negativeTtlNanos = negativeTtl.toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, Optional<Link>>() {
+                    @Override
+                    public long expireAfterCreate(String id, Optional<Link> link, long currentTime) {
+                        if (!link.isPresent()) {
+                            return negativeTtlNanos;
+                        }
+                        Instant expiresAt = link.get().getLimits().getExpiresAt();
+                        return expiresAt == null ? ttlNanos
+                                : Math.max(0, Math.min(ttlNanos, Duration.between(Instant.now(), expiresAt).toNanos()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String id, Optional<Link> link, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(id, link, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String id, Optional<Link> link, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the URL of {@code id}, calling {@code loader} on a miss. Concurrent misses
+     * on the same id share a single call to the loader.
+     *
+     * @return the URL or {@code null} if the id is unknown
+     */
+    public String get(String id, Function<String, String> loader) {
+        Link link = resolve(id, key -> Link.permanent(loader.apply(key)));
+        return link != null ? link.getUrl() : null;
+    }
+
+    /**
+     * Returns the link of {@code id}, calling {@code loader} on a miss, like {@link #get}.
+     *
+     * @return the link or {@code null} if the id is unknown
+     */
+    public Link resolve(String id, Function<String, Link> loader) {
+        return cache.get(id, key -> Optional.ofNullable(loader.apply(key))).orElse(null);
+    }
+
+    /**
+     * Returns the link of {@code id} for a redirect, which is counted if the link has a click limit.
+     * Concurrent misses on the same id share a single call to {@code load}, which counts the redirect
+     * of the caller that made it. The other callers, and hits on a link with a click limit, count
+     * theirs with {@code click}; a link that {@code click} finds gone is cached as unknown.
+     *
+     * @return the link or {@code null} if the id is unknown or has served all its clicks
+     */
+    public Link redirect(String id, Function<String, Link> load, Function<String, Link> click) {
+        boolean[] loaded = {false};
+        Link link = resolve(id, key -> {
+            loaded[0] = true;
+            return load.apply(key);
+        });
+        if (link == null || loaded[0] || !link.getLimits().isClickLimited()) {
+            return link;
+        }
+        link = click.apply(id);
+        if (link == null) {
+            putUnknown(id);
+        }
+        return link;
+    }
+
+    /**
+     * Returns the cached lookup of {@code id} without loading it. Meant for callers that cannot
+     * block on the loader, which then report the outcome with {@link #put} or {@link #putUnknown}.
+     *
+     * @return the link, an empty optional if the id is known to be unknown, or {@code null} on a miss
+     */
+    public Optional<Link> getIfPresent(String id) {
+        return cache.getIfPresent(id);
+    }
+
+    /**
+     * Records that {@code id} now points to {@code url}, replacing any stale or negative entry.
+     */
+    public void put(String id, String url) {
+        cache.put(id, Optional.of(Link.permanent(url)));
+    }
+
+    public void put(String id, Link link) {
+        cache.put(id, Optional.of(link));
+    }
+
+    public void putUnknown(String id) {
+        cache.put(id, Optional.empty());
+    }
+
+    public void invalidate(String id) {
+        cache.invalidate(id);
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new CaffeineCacheMetrics(cache, "redirects", Tags.empty()).bindTo(registry);
+    }
+}
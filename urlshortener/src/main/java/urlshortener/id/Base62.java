@@ -0,0 +1,38 @@
+package urlshortener.id;
+
+/**
+ * Encodes numbers with the 62 URL safe characters {@code [0-9A-Za-z]}.
+ */
+public final class Base62 {
+
+    private static final char[] DIGITS =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+
+    private static final int MAX_LENGTH = 11;
+
+    private Base62() {
+    }
+
+    /**
+     * @return the lowest base62 digit of {@code value} as an unsigned number
+     */
+    static char digit(long value) {
+        return DIGITS[(int) Long.remainderUnsigned(value, 62)];
+    }
+
+    /**
+     * Encodes {@code value} as an unsigned number.
+     */
+    public static String encode(long value) {
+        char[] buffer = new char[MAX_LENGTH];
+        int position = MAX_LENGTH;
+        // Unsigned division for the first digit, then the quotient fits in a signed long
+        long quotient = Long.divideUnsigned(value, 62);
+        buffer[--position] = DIGITS[(int) (value - quotient * 62)];
+        while (quotient > 0) {
+            buffer[--position] = DIGITS[(int) (quotient % 62)];
+            quotient /= 62;
+        }
+        return new String(buffer, position, MAX_LENGTH - position);
+    }
+}
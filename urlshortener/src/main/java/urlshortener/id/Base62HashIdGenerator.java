@@ -0,0 +1,52 @@
+package urlshortener.id;
+
+import com.google.common.hash.Hashing;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Base62 encoded murmur3 128 bit hash of the URL.
+ *
+ * The first attempt uses {@code length} characters, so the same URL always gets the same id.
+ * Each collision adds one more character of the hash.
+ */
+public class Base62HashIdGenerator implements IdGenerator {
+
+    /**
+     * 62^10 is below 2^64, so the 10 lowest base62 digits of each half of the hash are uniform.
+     */
+    private static final int DIGITS_PER_HALF = 10;
+
+    static final int MAX_LENGTH = 2 * DIGITS_PER_HALF;
+
+    private final int length;
+
+    public Base62HashIdGenerator(int length) {
+        if (length < 1 || length > MAX_LENGTH) {
+            throw new IllegalArgumentException("Length must be between 1 and " + MAX_LENGTH);
+        }
+        this.length = length;
+    }
+
+    @Override
+    public String generate(String url, int attempt) {
+        int size = length + attempt;
+        String input = url;
+        if (size > MAX_LENGTH) {
+            size = MAX_LENGTH;
+            input = url + '#' + attempt;
+        }
+        ByteBuffer hash = ByteBuffer.wrap(Hashing.murmur3_128().hashString(input, StandardCharsets.UTF_8).asBytes());
+        long half = hash.getLong(0);
+        char[] id = new char[size];
+        for (int i = 0; i < size; i++) {
+            if (i == DIGITS_PER_HALF) {
+                half = hash.getLong(8);
+            }
+            id[i] = Base62.digit(half);
+            half = Long.divideUnsigned(half, 62);
+        }
+        return new String(id);
+    }
+}
@@ -0,0 +1,54 @@
+package urlshortener.id;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Base62 encoded values of a cluster wide counter.
+ *
+ * The node reserves blocks of {@code blockSize} values at once, typically with a Redis
+ * {@code INCRBY}, and then hands them out locally without a round trip. Values of a block
+ * that is not used up before a restart are lost.
+ */
+public class CounterIdGenerator implements IdGenerator {
+
+    private final LongUnaryOperator reserve;
+    private final long blockSize;
+    private volatile Block block = new Block(0, 0);
+
+    /**
+     * @param reserve   adds its argument to the shared counter and returns the new value
+     * @param blockSize how many values are reserved at once
+     */
+    public CounterIdGenerator(LongUnaryOperator reserve, long blockSize) {
+        this.reserve = reserve;
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public String generate(String url, int attempt) {
+        while (true) {
+            Block current = block;
+            long value = current.next.getAndIncrement();
+            if (value < current.limit) {
+                return Base62.encode(value);
+            }
+            synchronized (this) {
+                if (block == current) {
+                    long limit = reserve.applyAsLong(blockSize);
+                    block = new Block(limit - blockSize, limit);
+                }
+            }
+        }
+    }
+
+    private static class Block {
+        private final AtomicLong next;
+        private final long limit;
+
+        Block(long first, long limit) {
+            this.next = new AtomicLong(first);
+            this.limit = limit;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package urlshortener.id;
+
+/**
+ * Strategy that proposes the id of a short URL.
+ *
+ * Ids are only proposals: {@link IdRegistry} claims them with {@code SET NX} and asks for the
+ * next attempt when the id is already taken by a different URL.
+ */
+public interface IdGenerator {
+
+    /**
+     * @param url     the URL being shortened
+     * @param attempt 0 for the first proposal, incremented after each collision
+     * @return a candidate id for {@code url}
+     */
+    String generate(String url, int attempt);
+}
@@ -0,0 +1,77 @@
+package urlshortener.id;
+
+import urlshortener.store.LinkLimits;
+import urlshortener.store.UrlStore;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Claims ids for URLs in the {@link UrlStore} without overwriting the URL of another id.
+ */
+public class IdRegistry {
+
+    private final UrlStore urlStore;
+    private final IdGenerator generator;
+    private final int maxAttempts;
+    private final LongAdder created = new LongAdder();
+    private final LongAdder existing = new LongAdder();
+
+    public IdRegistry(UrlStore urlStore, IdGenerator generator, int maxAttempts) {
+        this.urlStore = urlStore;
+        this.generator = generator;
+        this.maxAttempts = maxAttempts;
+    }
+
+    public IdGenerator getGenerator() {
+        return generator;
+    }
+
+    /**
+     * @return the number of URLs registered under a free id
+     */
+    public long getCreated() {
+        return created.sum();
+    }
+
+    /**
+     * @return the number of URLs found already registered, whose mapping was not written again
+     */
+    public long getExisting() {
+        return existing.sum();
+    }
+
+    /**
+     * Stores {@code url} under the first id proposed by the generator that is free or already
+     * points to {@code url}.
+     *
+     * @return the id of {@code url}
+     * @throws IllegalStateException if every attempt collided
+     */
+    public String register(String url) {
+        return register(url, LinkLimits.NONE);
+    }
+
+    /**
+     * Stores {@code url} with {@code limits}. A link with limits always gets an id of its own, as
+     * it goes away with them, so the generator is given the URL followed by a random suffix.
+     *
+     * @return the id of the link
+     * @throws IllegalStateException if every attempt collided
+     */
+    public String register(String url, LinkLimits limits) {
+        String key = limits.isNone() ? url : url + "#" + Long.toHexString(ThreadLocalRandom.current().nextLong());
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            String id = generator.generate(key, attempt);
+            if (limits.isNone() ? urlStore.setIfAbsent(id, url) : urlStore.setIfAbsent(id, url, limits)) {
+                created.increment();
+                return id;
+            }
+            if (limits.isNone() && url.equals(urlStore.get(id))) {
+                existing.increment();
+                return id;
+            }
+        }
+        throw new IllegalStateException("No free id for " + url + " after " + maxAttempts + " attempts");
+    }
+}
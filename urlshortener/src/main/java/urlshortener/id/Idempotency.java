@@ -0,0 +1,272 @@
+package urlshortener.id;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import urlshortener.store.LinkLimits;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Answers the retries of {@code POST /api} without validating, hashing or writing the URL again.
+ *
+ * The ids given recently are cached in process by URL, so that a repeated URL is answered without
+ * any I/O. A request with an {@code Idempotency-Key} header gets the id given to the first request
+ * with that key, provided it asks for the same URL and limits: keys are kept in Redis under
+ * {@code idempotency:<key>} for {@code keyTtl}, so that a retry reaching another instance is answered
+ * alike, and cached in process as well. A key is claimed before the URL is registered, so that
+ * concurrent requests with the same key wait for the first one rather than register the URL as well:
+ * a link left unused would stay for good without a ttl. Without Redis, a single instance keeps them in process only,
+ * as many as fit in {@code recentSize}. This matters
+ * for the counter and snowflake strategies, which give a new id to each request, and for links with
+ * {@link LinkLimits}, which always get a new id and are never looked up by URL.
+ */
+public class Idempotency implements MeterBinder {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    static final String KEY_PREFIX = "idempotency:";
+
+    /**
+     * Value of a key claimed by a request that is registering its URL, until it stores its submission.
+     */
+    static final String CLAIMED = "?";
+
+    /**
+     * How long a claim outlives a request that stopped before storing its submission.
+     */
+    static final Duration CLAIM_TTL = Duration.ofMinutes(1);
+
+    /**
+     * How long a request waits for the submission of a concurrent request with the same key.
+     */
+    static final Duration WAIT = Duration.ofSeconds(5);
+
+    private final IdRegistry registry;
+    private final StringRedisTemplate sharedData;
+    private final Duration keyTtl;
+    private final Cache<String, String> recentIds;
+    private final Cache<String, Submission> recentKeys;
+
+    private final LongAdder recent = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+
+    /**
+     * @param sharedData the Redis the keys are kept in, or {@code null} for a single instance
+     * @param recentSize how many URLs and keys are cached in process
+     * @param keyTtl     how long a key is kept
+     */
+    public Idempotency(IdRegistry registry, StringRedisTemplate sharedData, long recentSize, Duration keyTtl) {
+        this.registry = registry;
+        this.sharedData = sharedData;
+        this.keyTtl = keyTtl;
+        this.recentIds = Caffeine.newBuilder().maximumSize(recentSize).build();
+        this.recentKeys = Caffeine.newBuilder().maximumSize(recentSize).expireAfterWrite(keyTtl).build();
+    }
+
+    /**
+     * Looks up a repeated submission in process only.
+     *
+     * @param key the {@code Idempotency-Key} header or {@code null}
+     * @return the id of the earlier submission, or {@code null} if it must be registered
+     * @throws IllegalArgumentException if {@code key} was used for another URL
+     */
+    public String recent(String url, String key) {
+        return recent(url, key, LinkLimits.NONE, Instant.now());
+    }
+
+    /**
+     * @param requestedAt the instant the expiry of {@code limits} was computed from, so that a retry
+     *                    asking for the same ttl matches
+     * @throws IllegalArgumentException if {@code key} was used for another URL or other limits
+     */
+    public String recent(String url, String key, LinkLimits limits, Instant requestedAt) {
+        if (key != null) {
+            Submission submission = recentKeys.getIfPresent(key);
+            if (submission == null) {
+                return null;
+            }
+            String id = submission.idOf(url, limits, requestedAt, key);
+            replayed.increment();
+            return id;
+        }
+        String id = limits.isNone() ? recentIds.getIfPresent(url) : null;
+        if (id != null) {
+            recent.increment();
+        }
+        return id;
+    }
+
+    /**
+     * Registers {@code url}, unless {@code key} was already used for it on any instance.
+     *
+     * @param key the {@code Idempotency-Key} header or {@code null}
+     * @return the id of {@code url}
+     * @throws IllegalArgumentException if {@code key} was used for another URL
+     */
+    public String register(String url, String key) {
+        return register(url, key, LinkLimits.NONE, Instant.now());
+    }
+
+    /**
+     * @param requestedAt the instant the expiry of {@code limits} was computed from, so that a retry
+     *                    asking for the same ttl matches
+     * @throws IllegalArgumentException if {@code key} was used for another URL or other limits
+     * @throws KeyInUseException if a concurrent request with {@code key} is still registering its URL
+     */
+    public String register(String url, String key, LinkLimits limits, Instant requestedAt) {
+        if (key == null) {
+            String id = registry.register(url, limits);
+            if (limits.isNone()) {
+                recentIds.put(url, id);
+            }
+            return id;
+        }
+        if (sharedData == null) {
+            Submission[] created = {null};
+            Submission submission = recentKeys.get(key, k -> {
+                created[0] = new Submission(registry.register(url, limits), ttlMillis(limits, requestedAt),
+                        limits.getMaxClicks(), url);
+                return created[0];
+            });
+            if (submission != created[0]) {
+                replayed.increment();
+            }
+            if (limits.isNone()) {
+                recentIds.put(url, submission.id);
+            }
+            return submission.idOf(url, limits, requestedAt, key);
+        }
+        String redisKey = KEY_PREFIX + key;
+        String earlier = claim(redisKey, key);
+        if (earlier != null) {
+            String id = remember(key, Submission.parse(earlier)).idOf(url, limits, requestedAt, key);
+            replayed.increment();
+            return id;
+        }
+        Submission submission;
+        try {
+            submission = new Submission(registry.register(url, limits), ttlMillis(limits, requestedAt),
+                    limits.getMaxClicks(), url);
+        } catch (RuntimeException e) {
+            sharedData.delete(redisKey);
+            throw e;
+        }
+        sharedData.opsForValue().set(redisKey, submission.toString(), keyTtl);
+        if (limits.isNone()) {
+            recentIds.put(url, submission.id);
+        }
+        return remember(key, submission).idOf(url, limits, requestedAt, key);
+    }
+
+    /**
+     * Claims {@code key}, or waits for the submission of the concurrent request that claimed it.
+     *
+     * @return the submission stored with the key, or {@code null} if the caller claimed it
+     */
+    private String claim(String redisKey, String key) {
+        long deadline = System.nanoTime() + WAIT.toNanos();
+        while (true) {
+            String earlier = sharedData.opsForValue().get(redisKey);
+            if (earlier == null) {
+                if (Boolean.TRUE.equals(sharedData.opsForValue().setIfAbsent(redisKey, CLAIMED, CLAIM_TTL))) {
+                    return null;
+                }
+            } else if (!CLAIMED.equals(earlier)) {
+                return earlier;
+            }
+            if (System.nanoTime() > deadline) {
+                throw new KeyInUseException(HEADER + " " + key + " is used by a request in progress");
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new KeyInUseException(HEADER + " " + key + " is used by a request in progress");
+            }
+        }
+    }
+
+    /**
+     * @return the ttl the request asked for in milliseconds, or 0 if the link does not expire
+     */
+    private static long ttlMillis(LinkLimits limits, Instant requestedAt) {
+        return limits.getExpiresAt() == null ? 0 : Duration.between(requestedAt, limits.getExpiresAt()).toMillis();
+    }
+
+    private Submission remember(String key, Submission submission) {
+        recentKeys.put(key, submission);
+        return submission;
+    }
+
+    /**
+     * {@code shortener.submissions} counts the requests by outcome: ids {@code created}, URLs found
+     * {@code existing} in the store and not written again, or answered from the {@code recent} URLs
+     * or a {@code replayed} key without writing at all.
+     */
+    @Override
+    public void bindTo(MeterRegistry meters) {
+        FunctionCounter.builder("shortener.submissions", registry, IdRegistry::getCreated)
+                .tag("outcome", "created").register(meters);
+        FunctionCounter.builder("shortener.submissions", registry, IdRegistry::getExisting)
+                .tag("outcome", "existing").register(meters);
+        FunctionCounter.builder("shortener.submissions", recent, LongAdder::sum)
+                .tag("outcome", "recent").register(meters);
+        FunctionCounter.builder("shortener.submissions", replayed, LongAdder::sum)
+                .tag("outcome", "replayed").register(meters);
+    }
+
+    /**
+     * A concurrent request with the same key has not stored its submission in time.
+     */
+    public static final class KeyInUseException extends RuntimeException {
+
+        KeyInUseException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * The id, URL and limits of the first request with a key, stored as
+     * {@code <id> <ttlMillis> <maxClicks> <url>}. The ttl is kept as asked rather than as an expiry,
+     * which a retry computes anew.
+     */
+    private static final class Submission {
+        final String id;
+        final long ttlMillis;
+        final long maxClicks;
+        final String url;
+
+        Submission(String id, long ttlMillis, long maxClicks, String url) {
+            this.id = id;
+            this.ttlMillis = ttlMillis;
+            this.maxClicks = maxClicks;
+            this.url = url;
+        }
+
+        static Submission parse(String value) {
+            String[] fields = value.split(" ", 4);
+            return new Submission(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2]), fields[3]);
+        }
+
+        String idOf(String url, LinkLimits limits, Instant requestedAt, String key) {
+            if (!this.url.equals(url)) {
+                throw new IllegalArgumentException(HEADER + " " + key + " was used for another URL");
+            }
+            if (ttlMillis != ttlMillis(limits, requestedAt) || maxClicks != limits.getMaxClicks()) {
+                throw new IllegalArgumentException(HEADER + " " + key + " was used with other limits");
+            }
+            return id;
+        }
+
+        @Override
+        public String toString() {
+            return id + " " + ttlMillis + " " + maxClicks + " " + url;
+        }
+    }
+}
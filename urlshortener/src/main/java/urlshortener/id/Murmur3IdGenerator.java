@@ -0,0 +1,18 @@
+package urlshortener.id;
+
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The original ids: 8 hexadecimal characters of the murmur3 32 bit hash of the URL.
+ *
+ * Collisions are probed with the hash seeded by the attempt number.
+ */
+public class Murmur3IdGenerator implements IdGenerator {
+
+    @Override
+    public String generate(String url, int attempt) {
+        return Hashing.murmur3_32(attempt).hashString(url, StandardCharsets.UTF_8).toString();
+    }
+}
@@ -0,0 +1,62 @@
+package urlshortener.id;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Base62 encoded Snowflake ids: 41 bits of milliseconds since 2019, 10 bits of node id and
+ * 12 bits of sequence within the millisecond.
+ *
+ * Ids are unique as long as every node has a different node id. When the clock goes back the
+ * generator keeps using the last millisecond it saw until the clock catches up.
+ */
+public class SnowflakeIdGenerator implements IdGenerator {
+
+    static final long EPOCH = Instant.parse("2019-01-01T00:00:00Z").toEpochMilli();
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+
+    private final Clock clock;
+    private final long node;
+
+    /**
+     * Millisecond and sequence of the last id, as {@code millis << SEQUENCE_BITS | sequence}.
+     */
+    private final AtomicLong last = new AtomicLong();
+
+    public SnowflakeIdGenerator(int node, Clock clock) {
+        if (node < 0 || node >= 1 << NODE_BITS) {
+            throw new IllegalArgumentException("Node must be between 0 and " + ((1 << NODE_BITS) - 1));
+        }
+        this.node = node;
+        this.clock = clock;
+    }
+
+    @Override
+    public String generate(String url, int attempt) {
+        return Base62.encode(nextId());
+    }
+
+    long nextId() {
+        while (true) {
+            long previous = last.get();
+            long millis = clock.millis() - EPOCH;
+            long next;
+            if (millis > previous >>> SEQUENCE_BITS) {
+                next = millis << SEQUENCE_BITS;
+            } else if ((previous & MAX_SEQUENCE) < MAX_SEQUENCE) {
+                next = previous + 1;
+            } else {
+                // Sequence exhausted for this millisecond, wait for the next one
+                Thread.yield();
+                continue;
+            }
+            if (last.compareAndSet(previous, next)) {
+                long sequence = next & MAX_SEQUENCE;
+                return (next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS) | node << SEQUENCE_BITS | sequence;
+            }
+        }
+    }
+}
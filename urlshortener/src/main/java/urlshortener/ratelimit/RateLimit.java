@@ -0,0 +1,103 @@
+package urlshortener.ratelimit;
+
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The limit of an endpoint, {@code rate} requests per second per client with bursts of {@code burst}
+ * requests, and the buckets of its clients.
+ */
+public final class RateLimit {
+
+    static final String OVERFLOW = "*";
+
+    private static final AntPathMatcher PATHS = new AntPathMatcher();
+
+    private final String method;
+    private final String pattern;
+    private final double rate;
+    private final int burst;
+    private final long interval;
+
+    final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    final LongAdder rejected = new LongAdder();
+    final LongAdder overflowed = new LongAdder();
+
+    /**
+     * @param method  the HTTP method of the endpoint
+     * @param pattern the Ant-style path pattern of the endpoint, e.g. {@code /api/*}
+     */
+    public RateLimit(String method, String pattern, double rate, int burst) {
+        if (rate <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Invalid rate limit " + rate + "/" + burst + " of " + method + " " + pattern);
+        }
+        this.method = method;
+        this.pattern = pattern;
+        this.rate = rate;
+        this.burst = burst;
+        this.interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+    }
+
+    /**
+     * Parses limits separated by commas, each as {@code <method> <pattern>=<rate>[/<burst>]}, e.g.
+     * {@code POST /api=10/20,GET /api/*=100}. The burst defaults to the rate.
+     */
+    public static List<RateLimit> limits(String limits) {
+        List<RateLimit> parsed = new ArrayList<>();
+        for (String limit : limits.split(",")) {
+            limit = limit.trim();
+            if (limit.isEmpty()) {
+                continue;
+            }
+            int space = limit.indexOf(' ');
+            int equals = limit.lastIndexOf('=');
+            if (space < 0 || equals < space) {
+                throw new IllegalArgumentException("Invalid rate limit " + limit);
+            }
+            String[] values = limit.substring(equals + 1).trim().split("/");
+            double rate = Double.parseDouble(values[0]);
+            int burst = values.length > 1 ? Integer.parseInt(values[1]) : (int) Math.max(1, Math.ceil(rate));
+            parsed.add(new RateLimit(limit.substring(0, space), limit.substring(space + 1, equals).trim(), rate, burst));
+        }
+        return parsed;
+    }
+
+    public boolean matches(String method, String path) {
+        return this.method.equalsIgnoreCase(method) && PATHS.match(pattern, path);
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * Past {@code maxClients} buckets, the new clients share the bucket {@link #OVERFLOW} until the
+     * full buckets are dropped, so that made-up clients cannot grow the buckets without bound.
+     */
+    TokenBucket bucket(String client, int maxClients, long now) {
+        TokenBucket bucket = buckets.get(client);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxClients) {
+            overflowed.increment();
+            client = OVERFLOW;
+        }
+        return buckets.computeIfAbsent(client, key -> new TokenBucket(interval, burst, now));
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + pattern;
+    }
+}
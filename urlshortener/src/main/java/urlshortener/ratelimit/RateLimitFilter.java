@@ -0,0 +1,222 @@
+package urlshortener.ratelimit;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the requests of each client to the {@link RateLimit} of the endpoint. Rejected requests get
+ * a 429 with a {@code Retry-After} header. Clients are identified by their address, or by the value
+ * of the {@code clientHeader} header if it is one of the {@code apiKeys}: any other value would let
+ * a client get a new bucket with each request. Each limit keeps at most {@code maxClients} buckets.
+ *
+ * The check only takes a token from an in-memory {@link TokenBucket}. Every {@code syncInterval} a
+ * background thread adds the requests admitted by each bucket to the cluster-wide count of the client
+ * in Redis, {@code ratelimit:<method> <pattern>:<client>}, in one pipeline, and charges the bucket for
+ * the requests the other instances admitted meanwhile. A client spreading its requests over several
+ * instances can therefore exceed its limit by up to a sync interval of requests on each of them.
+ * Full buckets are dropped after the sync.
+ */
+public class RateLimitFilter extends OncePerRequestFilter implements MeterBinder {
+
+    private static final Log log = LogFactory.getLog(RateLimitFilter.class);
+
+    static final String KEY_PREFIX = "ratelimit:";
+
+    private final List<RateLimit> limits;
+    private final String clientHeader;
+    private final Set<String> apiKeys;
+    private final int maxClients;
+    private final StringRedisTemplate sharedData;
+    private final Duration syncInterval;
+    private final Clock clock;
+    private final UrlPathHelper paths = new UrlPathHelper();
+    private final LongAdder syncFailures = new LongAdder();
+    private final ScheduledExecutorService syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rate-limit-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param clientHeader the header of the API keys, or empty to tell clients apart by address only
+     * @param apiKeys      the API keys given their own buckets, required with a {@code clientHeader}
+     * @param sharedData   the Redis of the cluster-wide counts, or {@code null} for local limits only
+     */
+    public RateLimitFilter(List<RateLimit> limits, String clientHeader, Set<String> apiKeys, int maxClients,
+                           StringRedisTemplate sharedData, Duration syncInterval, Clock clock) {
+        if (!clientHeader.isEmpty() && apiKeys.isEmpty()) {
+            throw new IllegalArgumentException("The client header " + clientHeader + " needs API keys");
+        }
+        this.limits = limits;
+        this.clientHeader = clientHeader;
+        this.apiKeys = apiKeys;
+        this.maxClients = maxClients;
+        this.sharedData = sharedData;
+        this.syncInterval = syncInterval;
+        this.clock = clock;
+    }
+
+    /**
+     * Parses API keys separated by commas.
+     */
+    public static Set<String> apiKeys(String keys) {
+        Set<String> parsed = new HashSet<>();
+        for (String key : keys.split(",")) {
+            if (!key.trim().isEmpty()) {
+                parsed.add(key.trim());
+            }
+        }
+        return parsed;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long wait = acquire(request);
+        if (wait > 0) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + 999_999_999))));
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    /**
+     * @return 0 if the request is admitted, otherwise the nanoseconds until the client may retry
+     */
+    long acquire(HttpServletRequest request) {
+        String path = paths.getPathWithinApplication(request);
+        for (RateLimit limit : limits) {
+            if (limit.matches(request.getMethod(), path)) {
+                long now = now();
+                long wait = limit.bucket(client(request), maxClients, now).tryAcquire(now);
+                if (wait > 0) {
+                    limit.rejected.increment();
+                }
+                return wait;
+            }
+        }
+        return 0;
+    }
+
+    private String client(HttpServletRequest request) {
+        String key = clientHeader.isEmpty() ? null : request.getHeader(clientHeader);
+        return key != null && apiKeys.contains(key) ? key : request.getRemoteAddr();
+    }
+
+    private long now() {
+        return TimeUnit.MILLISECONDS.toNanos(clock.millis());
+    }
+
+    /**
+     * Not in {@code initFilterBean}, which the servlet container calls again.
+     */
+    @Override
+    public void afterPropertiesSet() throws ServletException {
+        super.afterPropertiesSet();
+        long millis = syncInterval.toMillis();
+        syncer.scheduleWithFixedDelay(this::sync, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        syncer.shutdownNow();
+    }
+
+    /**
+     * Synchronizes the counts and drops the full buckets. Only called from the sync thread.
+     */
+    void sync() {
+        List<RateLimit> synced = new ArrayList<>();
+        List<String> clients = new ArrayList<>();
+        List<TokenBucket> buckets = new ArrayList<>();
+        List<Long> admitted = new ArrayList<>();
+        for (RateLimit limit : limits) {
+            for (Map.Entry<String, TokenBucket> bucket : limit.buckets.entrySet()) {
+                synced.add(limit);
+                clients.add(bucket.getKey());
+                buckets.add(bucket.getValue());
+                admitted.add(bucket.getValue().takeAdmitted());
+            }
+        }
+        if (sharedData != null && !buckets.isEmpty()) {
+            try {
+                long expiry = Math.max(60, syncInterval.getSeconds() * 10);
+                List<Object> totals = sharedData.executePipelined((RedisCallback<Object>) connection -> {
+                    StringRedisConnection commands = (StringRedisConnection) connection;
+                    for (int i = 0; i < buckets.size(); i++) {
+                        String key = KEY_PREFIX + synced.get(i) + ":" + clients.get(i);
+                        commands.incrBy(key, admitted.get(i));
+                        commands.expire(key, expiry);
+                    }
+                    return null;
+                });
+                long now = now();
+                for (int i = 0; i < buckets.size(); i++) {
+                    TokenBucket bucket = buckets.get(i);
+                    long total = (Long) totals.get(2 * i);
+                    // the first count includes older requests, and a count that went down has expired
+                    long others = total - bucket.lastTotal - admitted.get(i);
+                    if (bucket.lastTotal > 0 && others > 0) {
+                        bucket.charge(others, now);
+                    }
+                    bucket.lastTotal = total;
+                }
+            } catch (RuntimeException e) {
+                syncFailures.increment();
+                log.warn("Could not synchronize the rate limits: " + e.getMessage());
+            }
+        }
+        long now = now();
+        for (int i = 0; i < buckets.size(); i++) {
+            if (buckets.get(i).isFull(now)) {
+                synced.get(i).buckets.remove(clients.get(i), buckets.get(i));
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (RateLimit limit : limits) {
+            FunctionCounter.builder("ratelimit.rejected", limit.rejected, LongAdder::sum)
+                    .tag("endpoint", limit.toString())
+                    .description("Requests rejected with 429").register(registry);
+            Gauge.builder("ratelimit.clients", limit.buckets, Map::size)
+                    .tag("endpoint", limit.toString())
+                    .description("Clients with a bucket that is not full").register(registry);
+            FunctionCounter.builder("ratelimit.overflow", limit.overflowed, LongAdder::sum)
+                    .tag("endpoint", limit.toString())
+                    .description("Requests of new clients past the maximum, limited together").register(registry);
+        }
+        FunctionCounter.builder("ratelimit.sync.failures", syncFailures, LongAdder::sum)
+                .description("Synchronizations of the counts with Redis that failed").register(registry);
+    }
+}
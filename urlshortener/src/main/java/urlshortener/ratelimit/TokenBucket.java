@@ -0,0 +1,69 @@
+package urlshortener.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token bucket of one client, refilled with one token every {@code interval} nanoseconds up to
+ * {@code burst} tokens.
+ *
+ * The bucket is kept as a single number, the time at which it will be full again (the theoretical
+ * arrival time of the generic cell rate algorithm), so that taking a token is one compare-and-set.
+ */
+final class TokenBucket {
+
+    private final long interval;
+    private final long capacity;
+    private final AtomicLong full;
+    private final LongAdder admitted = new LongAdder();
+
+    /**
+     * The cluster-wide count of the client when last synchronized, only used by the sync thread.
+     */
+    long lastTotal;
+
+    TokenBucket(long interval, int burst, long now) {
+        this.interval = interval;
+        this.capacity = interval * burst;
+        this.full = new AtomicLong(now);
+    }
+
+    /**
+     * @return 0 if a token was taken, otherwise the nanoseconds until one is available
+     */
+    long tryAcquire(long now) {
+        while (true) {
+            long current = full.get();
+            long next = Math.max(current, now) + interval;
+            long wait = next - now - capacity;
+            if (wait > 0) {
+                return wait;
+            }
+            if (full.compareAndSet(current, next)) {
+                admitted.increment();
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Takes the tokens spent by the requests the client made elsewhere, possibly going below empty.
+     */
+    void charge(long tokens, long now) {
+        full.accumulateAndGet(tokens * interval, (current, spent) -> Math.max(current, now) + spent);
+    }
+
+    /**
+     * @return the tokens taken since the last call
+     */
+    long takeAdmitted() {
+        return admitted.sumThenReset();
+    }
+
+    /**
+     * Whether the bucket is full, and so no different from a new one.
+     */
+    boolean isFull(long now) {
+        return full.get() <= now;
+    }
+}
@@ -0,0 +1,82 @@
+package urlshortener.reactive;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import urlshortener.cache.IdFilter;
+import urlshortener.cache.RedirectCache;
+import urlshortener.id.IdGenerator;
+import urlshortener.redirect.RedirectPolicy;
+import urlshortener.stats.ClickRecorder;
+import urlshortener.store.ShardedUrlStore;
+import urlshortener.store.UrlStore;
+import urlshortener.validation.LinkValidator;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * Non-blocking variant of the {@code /api} and {@code /api/{id}} endpoints of {@link urlshortener.App}
+ * on WebFlux functional routes and reactive Redis, enabled by the {@code reactive} profile.
+ *
+ * Functional routes are looked up before annotated controllers, so these routes take over the
+ * endpoints that {@code App} also declares. They read and write the ids in the Redis of
+ * {@code spring.redis} only, so the profile cannot be combined with {@code urlshortener.store.nodes}
+ * or with {@code urlshortener.store.directory} (the {@code embedded} profile), and do not keep an
+ * {@link IdFilter} up to date, so it cannot be combined with {@code urlshortener.filter.expected-ids}
+ * either. The {@code RateLimitFilter} is a servlet filter, so {@code urlshortener.ratelimit.limits}
+ * is refused too. Links with limits are only created by {@code App}: the {@code ttl} and
+ * {@code maxClicks} parameters get 501 here, but the redirects of such links are counted and answered
+ * as there. So do the {@code Idempotency-Key} header, which is not remembered here, and
+ * {@code POST /api/batch}, whose endpoint in {@code App} reads the servlet request.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveShortener {
+
+    @Bean
+    public NettyReactiveWebServerFactory reactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    public ReactiveStringRedisTemplate reactiveStringRedisTemplate(ReactiveRedisConnectionFactory connectionFactory) {
+        return new ReactiveStringRedisTemplate(connectionFactory);
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> shortenerRoutes(ReactiveStringRedisTemplate sharedData,
+            RedirectCache redirectCache, IdGenerator idGenerator, LinkValidator linkValidator,
+            ObjectProvider<ClickRecorder> clickRecorder, RedirectPolicy redirectPolicy, UrlStore urlStore, IdFilter idFilter,
+            @Value("${urlshortener.id.max-attempts:8}") int maxAttempts,
+            @Value("${urlshortener.store.directory:}") String directory,
+            @Value("${urlshortener.ratelimit.limits:}") String rateLimits) {
+        if (urlStore instanceof ShardedUrlStore) {
+            throw new IllegalStateException("The reactive profile does not support urlshortener.store.nodes");
+        }
+        if (!directory.trim().isEmpty()) {
+            throw new IllegalStateException("The reactive profile does not support urlshortener.store.directory");
+        }
+        if (idFilter.isEnabled()) {
+            throw new IllegalStateException("The reactive profile does not support urlshortener.filter.expected-ids");
+        }
+        if (!rateLimits.trim().isEmpty()) {
+            throw new IllegalStateException("The reactive profile does not support urlshortener.ratelimit.limits");
+        }
+        ShortenerHandler handler = new ShortenerHandler(sharedData, redirectCache, idGenerator, maxAttempts,
+                linkValidator, clickRecorder.getObject(), redirectPolicy);
+        return route(GET("/api/{id}"), handler::redirectTo)
+                .andRoute(POST("/api"), handler::shortener)
+                .andRoute(POST("/api/batch"), request -> ServerResponse.status(HttpStatus.NOT_IMPLEMENTED)
+                        .syncBody("The reactive profile does not support /api/batch"));
+    }
+}
@@ -0,0 +1,127 @@
+package urlshortener.reactive;
+
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+import urlshortener.cache.RedirectCache;
+import urlshortener.id.IdGenerator;
+import urlshortener.id.Idempotency;
+import urlshortener.redirect.RedirectPolicy;
+import urlshortener.stats.ClickEvent;
+import urlshortener.stats.ClickRecorder;
+import urlshortener.store.Link;
+import urlshortener.store.RedisUrlStore;
+import urlshortener.validation.LinkValidator;
+
+import java.net.URI;
+import java.util.Optional;
+
+/**
+ * Handler functions with the same contract as {@code App.redirectTo} and {@code App.shortener}.
+ */
+class ShortenerHandler {
+
+    private final ReactiveStringRedisTemplate sharedData;
+    private final RedirectCache redirectCache;
+    private final IdGenerator idGenerator;
+    private final int maxAttempts;
+    private final LinkValidator linkValidator;
+    private final ClickRecorder clickRecorder;
+    private final RedirectPolicy redirectPolicy;
+
+    ShortenerHandler(ReactiveStringRedisTemplate sharedData, RedirectCache redirectCache,
+                     IdGenerator idGenerator, int maxAttempts, LinkValidator linkValidator,
+                     ClickRecorder clickRecorder, RedirectPolicy redirectPolicy) {
+        this.sharedData = sharedData;
+        this.redirectCache = redirectCache;
+        this.idGenerator = idGenerator;
+        this.maxAttempts = maxAttempts;
+        this.linkValidator = linkValidator;
+        this.clickRecorder = clickRecorder;
+        this.redirectPolicy = redirectPolicy;
+    }
+
+    Mono<ServerResponse> redirectTo(ServerRequest request) {
+        String id = request.pathVariable("id");
+        Optional<Link> cached = redirectCache.getIfPresent(id);
+        // like App.redirectTo, a miss or a click limited link is read and counted with one script
+        Mono<Link> found = cached != null && !cached.filter(link -> link.getLimits().isClickLimited()).isPresent()
+                ? Mono.justOrEmpty(cached)
+                : sharedData.execute(RedisUrlStore.CLICK, RedisUrlStore.clickKeys(id)).next()
+                        .map(RedisUrlStore::link)
+                        .doOnNext(link -> redirectCache.put(id, link))
+                        .switchIfEmpty(Mono.fromRunnable(() -> redirectCache.putUnknown(id)));
+        return found
+                .doOnNext(link -> clickRecorder.record(new ClickEvent(id,
+                        request.headers().asHttpHeaders().getFirst(HttpHeaders.REFERER),
+                        request.headers().asHttpHeaders().getFirst(HttpHeaders.USER_AGENT),
+                        request.remoteAddress().map(address -> address.getAddress().getHostAddress()).orElse(null))))
+                .flatMap(this::redirect)
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    private Mono<ServerResponse> redirect(Link link) {
+        URI location = URI.create(link.getUrl());
+        if (!link.getLimits().isNone()) {
+            // never cached by clients, so that they come back once the link is gone
+            return ServerResponse.status(HttpStatus.TEMPORARY_REDIRECT).location(location).build();
+        }
+        ServerResponse.BodyBuilder response = ServerResponse.status(redirectPolicy.getStatus()).location(location);
+        if (redirectPolicy.getCacheControl() != null) {
+            response.header(HttpHeaders.CACHE_CONTROL, redirectPolicy.getCacheControl());
+        }
+        return response.build();
+    }
+
+    /**
+     * Links with limits are only created by {@code App}: the {@code ttl} and {@code maxClicks}
+     * parameters are answered with 501, like a store without limits. So is the {@code Idempotency-Key}
+     * header, rather than giving a retry a new id.
+     */
+    Mono<ServerResponse> shortener(ServerRequest request) {
+        if (request.headers().asHttpHeaders().containsKey(Idempotency.HEADER)) {
+            return ServerResponse.status(HttpStatus.NOT_IMPLEMENTED)
+                    .syncBody("The reactive profile does not support " + Idempotency.HEADER);
+        }
+        return request.formData()
+                .flatMap(form -> {
+                    if (isGiven(form.getFirst("ttl")) || isGiven(form.getFirst("maxClicks"))) {
+                        return ServerResponse.status(HttpStatus.NOT_IMPLEMENTED)
+                                .syncBody("The reactive profile does not support expiring links");
+                    }
+                    String url = form.getFirst("url");
+                    return linkValidator.isValid(url) ? save(request, url) : ServerResponse.badRequest().build();
+                });
+    }
+
+    private static boolean isGiven(String parameter) {
+        return parameter != null && !parameter.isEmpty();
+    }
+
+    private Mono<ServerResponse> save(ServerRequest request, String url) {
+        return register(url, 0)
+                .doOnNext(id -> redirectCache.put(id, url))
+                .flatMap(id -> ServerResponse.created(UriComponentsBuilder.fromUri(request.uri()).replaceQuery(null)
+                        .path("/{id}").buildAndExpand(id).toUri()).build());
+    }
+
+    /**
+     * Reactive counterpart of {@code IdRegistry.register}.
+     */
+    private Mono<String> register(String url, int attempt) {
+        if (attempt == maxAttempts) {
+            return Mono.error(new IllegalStateException("No free id for " + url + " after " + maxAttempts + " attempts"));
+        }
+        String id = idGenerator.generate(url, attempt);
+        return sharedData.opsForValue().setIfAbsent(id, url)
+                .filter(Boolean::booleanValue)
+                .switchIfEmpty(Mono.defer(() -> sharedData.opsForValue().get(id).map(url::equals)))
+                .filter(Boolean::booleanValue)
+                .map(claimed -> id)
+                .switchIfEmpty(Mono.defer(() -> register(url, attempt + 1)));
+    }
+}
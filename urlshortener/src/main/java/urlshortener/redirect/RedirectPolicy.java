@@ -0,0 +1,46 @@
+package urlshortener.redirect;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The status and caching of the redirects of {@code GET /api/{id}}.
+ *
+ * The default, a {@code 307} without caching headers, makes clients come back for every click.
+ * Short links never change their target, so they can be served as permanent ({@code 301} or
+ * {@code 308}) redirects with a {@code max-age}, which browsers and CDNs follow without asking
+ * again. Clicks answered from those caches are not counted in the statistics.
+ */
+public class RedirectPolicy {
+
+    private final HttpStatus status;
+    private final String cacheControl;
+
+    /**
+     * @param status 301, 302, 307 or 308
+     * @param maxAge how long clients may cache the redirect, zero for no {@code Cache-Control}
+     */
+    public RedirectPolicy(int status, Duration maxAge) {
+        this.status = HttpStatus.valueOf(status);
+        if (!this.status.is3xxRedirection() || status == 300 || status == 303 || status == 304 || status == 305) {
+            throw new IllegalArgumentException("Not a redirect to the same method: " + status);
+        }
+        this.cacheControl = maxAge.isZero() || maxAge.isNegative()
+                ? null
+                : CacheControl.maxAge(maxAge.getSeconds(), TimeUnit.SECONDS).cachePublic().getHeaderValue();
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the {@code Cache-Control} header of redirects, {@code null} when there is none
+     */
+    public String getCacheControl() {
+        return cacheControl;
+    }
+}
@@ -0,0 +1,35 @@
+package urlshortener.stats;
+
+/**
+ * A redirect as seen by {@code App.redirectTo}, with the raw headers that are classified later.
+ */
+public class ClickEvent {
+
+    private final String id;
+    private final String referrer;
+    private final String userAgent;
+    private final String visitor;
+
+    public ClickEvent(String id, String referrer, String userAgent, String visitor) {
+        this.id = id;
+        this.referrer = referrer;
+        this.userAgent = userAgent;
+        this.visitor = visitor;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getReferrer() {
+        return referrer;
+    }
+
+    public String getUserAgent() {
+        return userAgent;
+    }
+
+    public String getVisitor() {
+        return visitor;
+    }
+}
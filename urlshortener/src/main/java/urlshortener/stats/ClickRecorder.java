@@ -0,0 +1,245 @@
+package urlshortener.stats;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records redirects off the latency path of {@code App.redirectTo}.
+ *
+ * {@link #record} only offers the event to a lock-free {@link RingBuffer} and drops it when the
+ * buffer is full. A background thread drains the buffer every {@code flushInterval}, aggregates
+ * the events in memory and writes the totals to Redis in one pipeline: {@code HINCRBY} on the
+ * hash {@code stats:<id>} and {@code PFADD} on the HyperLogLog {@code stats:<id>:visitors}.
+ *
+ * The {@code Referer} header is up to the client, so each id keeps at most {@code maxReferrers}
+ * referrer hosts, the first ones seen, and counts the others as {@code other}: a Lua script checks
+ * the number of hosts, kept in the field {@code referrers}, before adding one.
+ */
+public class ClickRecorder implements MeterBinder, InitializingBean, DisposableBean {
+
+    private static final Log log = LogFactory.getLog(ClickRecorder.class);
+
+    static final String CLICKS = "clicks";
+    static final String REFERRER = "referrer:";
+    static final String USER_AGENT = "ua:";
+    static final String REFERRERS = "referrers";
+    static final String OTHER = "other";
+
+    /**
+     * KEYS stats; ARGV field, count, max referrers.
+     */
+    private static final RedisScript<Long> COUNT_REFERRER = new DefaultRedisScript<>(
+            "if redis.call('HEXISTS', KEYS[1], ARGV[1]) == 0 then\n"
+            + "  if tonumber(redis.call('HGET', KEYS[1], '" + REFERRERS + "') or '0') >= tonumber(ARGV[3]) then\n"
+            + "    return redis.call('HINCRBY', KEYS[1], '" + REFERRER + OTHER + "', ARGV[2])\n"
+            + "  end\n"
+            + "  redis.call('HINCRBY', KEYS[1], '" + REFERRERS + "', 1)\n"
+            + "end\n"
+            + "return redis.call('HINCRBY', KEYS[1], ARGV[1], ARGV[2])", Long.class);
+
+    private final StringRedisTemplate sharedData;
+    private final RingBuffer<ClickEvent> buffer;
+    private final Duration flushInterval;
+    private final int maxReferrers;
+    private final ScheduledExecutorService drainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "click-drainer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder lost = new LongAdder();
+
+    public ClickRecorder(StringRedisTemplate sharedData, int capacity, Duration flushInterval, int maxReferrers) {
+        this.sharedData = sharedData;
+        this.buffer = new RingBuffer<>(capacity);
+        this.flushInterval = flushInterval;
+        this.maxReferrers = maxReferrers;
+    }
+
+    /**
+     * Never blocks: the event is dropped if the drainer is behind.
+     */
+    public void record(ClickEvent event) {
+        if (buffer.offer(event)) {
+            recorded.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    public ClickStats stats(String id) {
+        Map<Object, Object> totals = sharedData.opsForHash().entries(key(id));
+        long visitors = sharedData.opsForHyperLogLog().size(visitorsKey(id));
+        long clicks = 0;
+        Map<String, Long> referrers = new TreeMap<>();
+        Map<String, Long> userAgents = new TreeMap<>();
+        for (Map.Entry<Object, Object> total : totals.entrySet()) {
+            String field = (String) total.getKey();
+            long count = Long.parseLong((String) total.getValue());
+            if (field.equals(CLICKS)) {
+                clicks = count;
+            } else if (field.startsWith(REFERRER)) {
+                referrers.put(field.substring(REFERRER.length()), count);
+            } else if (field.startsWith(USER_AGENT)) {
+                userAgents.put(field.substring(USER_AGENT.length()), count);
+            }
+        }
+        return new ClickStats(clicks, visitors, referrers, userAgents);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        long millis = flushInterval.toMillis();
+        drainer.scheduleWithFixedDelay(this::flush, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        drainer.shutdown();
+        drainer.awaitTermination(flushInterval.toMillis() * 2, TimeUnit.MILLISECONDS);
+        flush();
+    }
+
+    /**
+     * Drains the buffer and writes its totals. Only called from the drainer thread or after it stopped.
+     */
+    void flush() {
+        Map<String, Totals> totals = new HashMap<>();
+        int drained = 0;
+        ClickEvent event;
+        // Bounded so that a busy buffer is still flushed regularly
+        while (drained < buffer.capacity() && (event = buffer.poll()) != null) {
+            totals.computeIfAbsent(event.getId(), id -> new Totals()).add(event);
+            drained++;
+        }
+        if (totals.isEmpty()) {
+            return;
+        }
+        try {
+            sharedData.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection commands = (StringRedisConnection) connection;
+                String max = Integer.toString(maxReferrers);
+                commands.scriptLoad(COUNT_REFERRER.getScriptAsString());
+                for (Map.Entry<String, Totals> entry : totals.entrySet()) {
+                    String key = key(entry.getKey());
+                    Totals counts = entry.getValue();
+                    commands.hIncrBy(key, CLICKS, counts.clicks);
+                    counts.referrers.forEach((field, count) -> commands.evalSha(COUNT_REFERRER.getSha1(),
+                            ReturnType.INTEGER, 1, key, field, Long.toString(count), max));
+                    counts.userAgents.forEach((field, count) -> commands.hIncrBy(key, field, count));
+                    if (!counts.visitors.isEmpty()) {
+                        commands.pfAdd(visitorsKey(entry.getKey()), counts.visitors.toArray(new String[0]));
+                    }
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            lost.add(drained);
+            log.warn("Lost " + drained + " clicks: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("clicks.recorded", recorded, LongAdder::sum)
+                .description("Clicks accepted by the buffer").register(registry);
+        FunctionCounter.builder("clicks.dropped", dropped, LongAdder::sum)
+                .description("Clicks dropped because the buffer was full").register(registry);
+        FunctionCounter.builder("clicks.lost", lost, LongAdder::sum)
+                .description("Clicks drained but not written to Redis").register(registry);
+        Gauge.builder("clicks.buffered", buffer, RingBuffer::size).register(registry);
+    }
+
+    static String key(String id) {
+        return "stats:" + id;
+    }
+
+    static String visitorsKey(String id) {
+        return "stats:" + id + ":visitors";
+    }
+
+    private static class Totals {
+        private long clicks;
+        private final Map<String, Long> referrers = new HashMap<>();
+        private final Map<String, Long> userAgents = new HashMap<>();
+        private final Set<String> visitors = new HashSet<>();
+
+        void add(ClickEvent event) {
+            clicks++;
+            referrers.merge(REFERRER + referrerHost(event.getReferrer()), 1L, Long::sum);
+            userAgents.merge(USER_AGENT + userAgentFamily(event.getUserAgent()), 1L, Long::sum);
+            if (event.getVisitor() != null) {
+                visitors.add(event.getVisitor());
+            }
+        }
+    }
+
+    /**
+     * @return the host of the referrer, or {@code direct} without one
+     */
+    static String referrerHost(String referrer) {
+        if (referrer == null || referrer.isEmpty()) {
+            return "direct";
+        }
+        int start = referrer.indexOf("://");
+        start = start < 0 ? 0 : start + 3;
+        int end = start;
+        while (end < referrer.length() && "/?#:".indexOf(referrer.charAt(end)) < 0) {
+            end++;
+        }
+        return end > start ? referrer.substring(start, end).toLowerCase() : "unknown";
+    }
+
+    /**
+     * Coarse browser family, enough for a breakdown without keeping every User-Agent string.
+     */
+    static String userAgentFamily(String userAgent) {
+        if (userAgent == null || userAgent.isEmpty()) {
+            return "unknown";
+        }
+        String ua = userAgent.toLowerCase();
+        if (ua.contains("bot") || ua.contains("spider") || ua.contains("crawl")) {
+            return "bot";
+        } else if (ua.contains("edge/") || ua.contains("edg/")) {
+            return "edge";
+        } else if (ua.contains("opr/") || ua.contains("opera")) {
+            return "opera";
+        } else if (ua.contains("chrome/") || ua.contains("crios/")) {
+            return "chrome";
+        } else if (ua.contains("firefox/") || ua.contains("fxios/")) {
+            return "firefox";
+        } else if (ua.contains("safari/")) {
+            return "safari";
+        } else if (ua.contains("msie") || ua.contains("trident/")) {
+            return "ie";
+        } else if (ua.startsWith("curl/") || ua.startsWith("httpie/") || ua.startsWith("wget/")) {
+            return "cli";
+        }
+        return "other";
+    }
+}
@@ -0,0 +1,40 @@
+package urlshortener.stats;
+
+import java.util.Map;
+
+/**
+ * Body of {@code GET /api/{id}/stats}.
+ */
+public class ClickStats {
+
+    private final long clicks;
+    private final long uniqueVisitors;
+    private final Map<String, Long> referrers;
+    private final Map<String, Long> userAgents;
+
+    public ClickStats(long clicks, long uniqueVisitors, Map<String, Long> referrers, Map<String, Long> userAgents) {
+        this.clicks = clicks;
+        this.uniqueVisitors = uniqueVisitors;
+        this.referrers = referrers;
+        this.userAgents = userAgents;
+    }
+
+    public long getClicks() {
+        return clicks;
+    }
+
+    /**
+     * Estimated with a HyperLogLog, about 1% off.
+     */
+    public long getUniqueVisitors() {
+        return uniqueVisitors;
+    }
+
+    public Map<String, Long> getReferrers() {
+        return referrers;
+    }
+
+    public Map<String, Long> getUserAgents() {
+        return userAgents;
+    }
+}
@@ -0,0 +1,134 @@
+package urlshortener.stats;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import urlshortener.store.UrlStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Deletes the statistics written by the {@link ClickRecorder} for ids that are gone, as Redis
+ * expires a limited id and its clicks left but not the statistics, which have no expiry of their own.
+ *
+ * Every {@code interval} the keys {@code stats:*} are scanned, and those of the ids the
+ * {@link UrlStore} no longer knows are deleted, a thousand ids at a time.
+ */
+public class StatsSweeper implements MeterBinder, InitializingBean, DisposableBean {
+
+    private static final Log log = LogFactory.getLog(StatsSweeper.class);
+
+    static final int SCAN_COUNT = 1000;
+
+    private final StringRedisTemplate sharedData;
+    private final UrlStore urlStore;
+    private final Duration interval;
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "stats-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder swept = new LongAdder();
+
+    public StatsSweeper(StringRedisTemplate sharedData, UrlStore urlStore, Duration interval) {
+        this.sharedData = sharedData;
+        this.urlStore = urlStore;
+        this.interval = interval;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        long millis = interval.toMillis();
+        sweeper.scheduleWithFixedDelay(() -> {
+            try {
+                long deleted = sweep();
+                if (deleted > 0) {
+                    log.info("Deleted the statistics of " + deleted + " ids that are gone");
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not sweep the statistics: " + e.getMessage());
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * @return the number of ids whose statistics were deleted
+     */
+    long sweep() {
+        return sharedData.execute((RedisCallback<Long>) connection -> {
+            long deleted = 0;
+            Set<String> ids = new LinkedHashSet<>();
+            ScanOptions options = ScanOptions.scanOptions().match(ClickRecorder.key("*")).count(SCAN_COUNT).build();
+            try (Cursor<byte[]> keys = connection.scan(options)) {
+                while (keys.hasNext()) {
+                    ids.add(id(new String(keys.next(), StandardCharsets.UTF_8)));
+                    if (ids.size() == SCAN_COUNT) {
+                        deleted += deleteGone(ids);
+                        ids.clear();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return deleted + deleteGone(ids);
+        });
+    }
+
+    private static String id(String key) {
+        int start = ClickRecorder.key("").length();
+        int end = key.indexOf(':', start);
+        return key.substring(start, end < 0 ? key.length() : end);
+    }
+
+    private long deleteGone(Set<String> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<String> candidates = new ArrayList<>(ids);
+        List<String> urls = urlStore.get(candidates);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            if (urls.get(i) == null) {
+                keys.add(ClickRecorder.key(candidates.get(i)));
+                keys.add(ClickRecorder.visitorsKey(candidates.get(i)));
+            }
+        }
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        sharedData.delete(keys);
+        swept.add(keys.size() / 2);
+        return keys.size() / 2;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("stats.swept", swept, LongAdder::sum)
+                .description("Ids whose statistics were deleted as the id is gone").register(registry);
+    }
+}
@@ -0,0 +1,68 @@
+package urlshortener.store;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+
+/**
+ * Assigns keys to nodes with consistent hashing.
+ *
+ * Each node is placed at {@code virtualNodes} points of a ring of 64 bit murmur3 hashes, and a key
+ * belongs to the node of the first point at or after its own hash. Adding a node to {@code n} nodes
+ * only moves about {@code 1/(n+1)} of the keys, all to the new node. The ring is immutable, and a
+ * lookup is a binary search in a sorted array.
+ */
+public final class ConsistentHashRing<T> {
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private final long[] points;
+    private final Object[] owners;
+
+    public ConsistentHashRing(Map<String, T> nodes, int virtualNodes) {
+        if (nodes.isEmpty() || virtualNodes < 1) {
+            throw new IllegalArgumentException("A ring needs nodes and virtual nodes");
+        }
+        Point[] ring = new Point[nodes.size() * virtualNodes];
+        int i = 0;
+        for (Map.Entry<String, T> node : nodes.entrySet()) {
+            for (int v = 0; v < virtualNodes; v++) {
+                ring[i++] = new Point(hash(node.getKey() + "#" + v), node.getValue());
+            }
+        }
+        Arrays.sort(ring, Comparator.comparingLong(point -> point.hash));
+        points = new long[ring.length];
+        owners = new Object[ring.length];
+        for (i = 0; i < ring.length; i++) {
+            points[i] = ring[i].hash;
+            owners[i] = ring[i].owner;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(String key) {
+        int i = Arrays.binarySearch(points, hash(key));
+        if (i < 0) {
+            i = -i - 1;
+        }
+        return (T) owners[i == points.length ? 0 : i];
+    }
+
+    static long hash(String key) {
+        return HASH.hashString(key, StandardCharsets.UTF_8).asLong();
+    }
+
+    private static final class Point {
+        final long hash;
+        final Object owner;
+
+        Point(long hash, Object owner) {
+            this.hash = hash;
+            this.owner = owner;
+        }
+    }
+}
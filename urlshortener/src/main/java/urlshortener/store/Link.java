@@ -0,0 +1,30 @@
+package urlshortener.store;
+
+/**
+ * The URL of an id and what is left of its {@link LinkLimits}, as looked up for a redirect.
+ */
+public final class Link {
+
+    private final String url;
+    private final LinkLimits limits;
+
+    public Link(String url, LinkLimits limits) {
+        this.url = url;
+        this.limits = limits;
+    }
+
+    /**
+     * @return a link without limits to {@code url}, or {@code null} if {@code url} is
+     */
+    public static Link permanent(String url) {
+        return url != null ? new Link(url, LinkLimits.NONE) : null;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public LinkLimits getLimits() {
+        return limits;
+    }
+}
@@ -0,0 +1,71 @@
+package urlshortener.store;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * When a short link stops redirecting: at {@code expiresAt}, after {@code maxClicks} redirects, or
+ * whichever comes first. Read back from a store, they are what is left of the limits.
+ */
+public final class LinkLimits {
+
+    public static final LinkLimits NONE = new LinkLimits(null, 0);
+
+    private final Instant expiresAt;
+    private final long maxClicks;
+
+    /**
+     * @param expiresAt when the link expires, {@code null} for never
+     * @param maxClicks how many redirects the link serves, 0 for no limit
+     */
+    public LinkLimits(Instant expiresAt, long maxClicks) {
+        if (maxClicks < 0) {
+            throw new IllegalArgumentException("Negative click limit " + maxClicks);
+        }
+        this.expiresAt = expiresAt;
+        this.maxClicks = maxClicks;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public long getMaxClicks() {
+        return maxClicks;
+    }
+
+    public boolean isNone() {
+        return expiresAt == null && maxClicks == 0;
+    }
+
+    public boolean isClickLimited() {
+        return maxClicks > 0;
+    }
+
+    /**
+     * @return the milliseconds left at {@code now}, at least 1, or 0 if the link does not expire
+     */
+    long ttlMillis(Instant now) {
+        return expiresAt == null ? 0 : Math.max(1, Duration.between(now, expiresAt).toMillis());
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof LinkLimits)) {
+            return false;
+        }
+        LinkLimits limits = (LinkLimits) other;
+        return Objects.equals(expiresAt, limits.expiresAt) && maxClicks == limits.maxClicks;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(expiresAt, maxClicks);
+    }
+
+    @Override
+    public String toString() {
+        return "expires " + (expiresAt != null ? expiresAt : "never") + ", " + (maxClicks > 0 ? maxClicks : "unlimited") + " clicks";
+    }
+}
@@ -0,0 +1,520 @@
+package urlshortener.store;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the ids on the local disk, in an append-only log of memory-mapped segment files, with an
+ * {@link OffHeapIndex} from ids to records.
+ *
+ * A record is a CRC32, the lengths of the id and of the URL (-1 for a deletion) and their UTF-8
+ * bytes. On startup the segments are replayed in order to rebuild the index; replay stops at the
+ * first record whose checksum does not match, the write torn by a crash, and the next record
+ * overwrites it. Records survive a crash of the process as soon as they are written to the
+ * mapping, and a crash of the machine once the segment is forced to disk, every second.
+ *
+ * Lookups take an optimistic read of a {@link StampedLock}: they do not block, and only retry
+ * under the read lock when a write happened meanwhile. Writes take the write lock.
+ *
+ * When deleted records take more than half of a full segment, a background compaction copies
+ * its live records to the end of the log and deletes the segment file.
+ */
+public class LogUrlStore implements UrlShard, MeterBinder, InitializingBean {
+
+    private static final Log log = LogFactory.getLog(LogUrlStore.class);
+
+    private static final int HEADER = 12;
+    private static final int DELETED = -1;
+    private static final String SUFFIX = ".log";
+    static final double COMPACTION_THRESHOLD = 0.5;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Duration compactionInterval;
+    private final StampedLock lock = new StampedLock();
+    private final OffHeapIndex index = new OffHeapIndex(1 << 16);
+    private final OffHeapIndex.Matcher matcher = this::matches;
+    private final ScheduledExecutorService background = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "log-store");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Segments by number, {@code null} once compacted. Replaced, never modified.
+     */
+    private volatile Segment[] segments = new Segment[0];
+    private volatile Segment active;
+
+    /**
+     * Opens the log in {@code directory} and replays it.
+     *
+     * @param segmentSize        bytes mapped per segment file, the largest record has to fit
+     * @param compactionInterval time between two checks for segments to compact
+     */
+    public LogUrlStore(Path directory, int segmentSize, Duration compactionInterval) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.compactionInterval = compactionInterval;
+        try {
+            Files.createDirectories(directory);
+            List<Path> files;
+            try (Stream<Path> list = Files.list(directory)) {
+                files = list.filter(file -> file.getFileName().toString().matches("\\d{8}\\" + SUFFIX))
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+            for (int i = 0; i < files.size(); i++) {
+                Path file = files.get(i);
+                int number = Integer.parseInt(file.getFileName().toString().substring(0, 8));
+                boolean last = i == files.size() - 1;
+                Segment segment = new Segment(number, file, last ? Math.max(segmentSize, (int) Files.size(file)) : (int) Files.size(file));
+                add(segment);
+                replay(segment, last);
+                active = segment;
+            }
+            if (active == null) {
+                active = add(new Segment(1, segmentFile(1), segmentSize));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the log in " + directory, e);
+        }
+        log.info("Replayed " + index.size() + " ids from " + directory);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        background.scheduleWithFixedDelay(this::force, 1, 1, TimeUnit.SECONDS);
+        long millis = compactionInterval.toMillis();
+        background.scheduleWithFixedDelay(() -> {
+            try {
+                compact();
+            } catch (RuntimeException e) {
+                log.warn("Compaction failed: " + e.getMessage(), e);
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public String getName() {
+        return directory.toString();
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return index.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public String get(String id) {
+        long hash = OffHeapIndex.hash(id);
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                String url = read(hash, id);
+                if (lock.validate(stamp)) {
+                    return url;
+                }
+            } catch (RuntimeException e) {
+                // an inconsistent read of a concurrent write, retried under the lock
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return read(hash, id);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public List<String> get(List<String> ids) {
+        return ids.stream().map(this::get).collect(Collectors.toList());
+    }
+
+    @Override
+    public boolean setIfAbsent(String id, String url) {
+        long stamp = lock.writeLock();
+        try {
+            return claim(id, url);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public List<Boolean> setIfAbsent(List<String> ids, List<String> urls) {
+        List<Boolean> created = new ArrayList<>(ids.size());
+        long stamp = lock.writeLock();
+        try {
+            for (int i = 0; i < ids.size(); i++) {
+                created.add(claim(ids.get(i), urls.get(i)));
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return created;
+    }
+
+    @Override
+    public void delete(Collection<String> ids) {
+        long stamp = lock.writeLock();
+        try {
+            for (String id : ids) {
+                long location = index.remove(OffHeapIndex.hash(id), id, matcher);
+                if (location >= 0) {
+                    discard(location);
+                    discard(append(id, null));
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void scanIds(int count, Consumer<List<String>> batch) {
+        List<String> ids = new ArrayList<>();
+        long stamp = lock.readLock();
+        try {
+            index.forEach(location -> ids.add(readId(segment(location), offset(location))));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        for (int from = 0; from < ids.size(); from += count) {
+            batch.accept(new ArrayList<>(ids.subList(from, Math.min(ids.size(), from + count))));
+        }
+    }
+
+    /**
+     * Rewrites the full segments whose deleted records take more than {@link #COMPACTION_THRESHOLD}
+     * of their size.
+     *
+     * @return the number of segments compacted
+     */
+    public synchronized int compact() {
+        int compacted = 0;
+        for (Segment segment : segments) {
+            if (segment != null && segment != active && segment.garbage > segment.end * COMPACTION_THRESHOLD) {
+                compact(segment);
+                compacted++;
+            }
+        }
+        return compacted;
+    }
+
+    private void compact(Segment source) {
+        boolean older = false;
+        for (Segment segment : segments) {
+            older |= segment != null && segment.number < source.number;
+        }
+        int offset = 0;
+        while (offset < source.end) {
+            long stamp = lock.writeLock();
+            try {
+                // In batches, so that lookups are not held back for long
+                for (int records = 0; records < 256 && offset < source.end; records++) {
+                    long location = location(source, offset);
+                    String id = readId(source, offset);
+                    long hash = OffHeapIndex.hash(id);
+                    int urlLength = source.buffer.getInt(offset + 8);
+                    if (urlLength != DELETED) {
+                        if (index.find(hash, id, matcher) == location) {
+                            index.replace(hash, location, append(id, readUrl(source, offset)));
+                        }
+                    } else if (older && index.find(hash, id, matcher) < 0) {
+                        // Still hides a record of the id in an older segment
+                        discard(append(id, null));
+                    }
+                    offset += length(source, offset);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+        long stamp = lock.writeLock();
+        try {
+            active.buffer.force();
+            Segment[] remaining = segments.clone();
+            remaining[source.number] = null;
+            segments = remaining;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        try {
+            source.channel.close();
+            Files.delete(source.path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete " + source.path, e);
+        }
+        log.info("Compacted " + source.path);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("urlstore.ids", this, LogUrlStore::size)
+                .description("Ids in the log").register(registry);
+        Gauge.builder("urlstore.segments", this, store -> Arrays.stream(store.segments).filter(s -> s != null).count())
+                .description("Segment files of the log").register(registry);
+    }
+
+    @Override
+    public void close() {
+        background.shutdownNow();
+        long stamp = lock.writeLock();
+        try {
+            for (Segment segment : segments) {
+                if (segment != null) {
+                    segment.buffer.force();
+                    segment.channel.close();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close the log in " + directory, e);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void force() {
+        active.buffer.force();
+    }
+
+    private boolean claim(String id, String url) {
+        long hash = OffHeapIndex.hash(id);
+        if (index.find(hash, id, matcher) >= 0) {
+            return false;
+        }
+        index.put(hash, append(id, url.getBytes(StandardCharsets.UTF_8)), id, matcher);
+        return true;
+    }
+
+    private String read(long hash, String id) {
+        long location = index.find(hash, id, matcher);
+        if (location < 0) {
+            return null;
+        }
+        return new String(readUrl(segment(location), offset(location)), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a record at the end of the log, {@code url} is {@code null} for a deletion.
+     */
+    private long append(String id, byte[] url) {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        int length = HEADER + idBytes.length + (url == null ? 0 : url.length);
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.putInt(0).putInt(idBytes.length).putInt(url == null ? DELETED : url.length).put(idBytes);
+        if (url != null) {
+            record.put(url);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 4, length - 4);
+        record.putInt(0, (int) crc.getValue());
+
+        Segment segment = active;
+        if (segment.end + length > segment.buffer.capacity()) {
+            segment.buffer.force();
+            segment = add(new Segment(segment.number + 1, segmentFile(segment.number + 1), Math.max(segmentSize, length)));
+            active = segment;
+        }
+        int offset = segment.end;
+        ByteBuffer target = segment.buffer.duplicate();
+        target.position(offset);
+        target.put(record.array());
+        segment.end = offset + length;
+        return location(segment, offset);
+    }
+
+    private void replay(Segment segment, boolean last) {
+        MappedByteBuffer buffer = segment.buffer;
+        int offset = 0;
+        while (offset + HEADER <= buffer.capacity()) {
+            int idLength = buffer.getInt(offset + 4);
+            int urlLength = buffer.getInt(offset + 8);
+            if (idLength == 0 && urlLength == 0 && buffer.getInt(offset) == 0) {
+                break;
+            }
+            if (!valid(buffer, offset, idLength, urlLength)) {
+                log.warn("Dropping the torn record at " + offset + " of " + segment.path);
+                if (last) {
+                    for (int i = offset; i < buffer.capacity(); i++) {
+                        buffer.put(i, (byte) 0);
+                    }
+                }
+                break;
+            }
+            String id = readId(segment, offset);
+            long hash = OffHeapIndex.hash(id);
+            long previous;
+            if (urlLength == DELETED) {
+                previous = index.remove(hash, id, matcher);
+                segment.garbage += length(segment, offset);
+            } else {
+                previous = index.put(hash, location(segment, offset), id, matcher);
+            }
+            if (previous >= 0) {
+                discard(previous);
+            }
+            offset += length(segment, offset);
+        }
+        segment.end = offset;
+    }
+
+    private static boolean valid(MappedByteBuffer buffer, int offset, int idLength, int urlLength) {
+        if (idLength <= 0 || urlLength < DELETED
+                || (long) offset + HEADER + idLength + Math.max(urlLength, 0) > buffer.capacity()) {
+            return false;
+        }
+        int length = HEADER + idLength + Math.max(urlLength, 0);
+        byte[] bytes = new byte[length - 4];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(offset + 4 + i);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return (int) crc.getValue() == buffer.getInt(offset);
+    }
+
+    private boolean matches(long location, String id) {
+        Segment segment = segment(location);
+        if (segment == null) {
+            return false;
+        }
+        int offset = offset(location);
+        int idLength = segment.buffer.getInt(offset + 4);
+        if (idLength <= 0 || offset + HEADER + idLength > segment.buffer.capacity()) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            if (id.charAt(i) >= 0x80) {
+                return Arrays.equals(id.getBytes(StandardCharsets.UTF_8), idBytes(segment, offset));
+            }
+        }
+        if (idLength != id.length()) {
+            return false;
+        }
+        for (int i = 0; i < idLength; i++) {
+            if (segment.buffer.get(offset + HEADER + i) != id.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void discard(long location) {
+        Segment segment = segment(location);
+        if (segment != null) {
+            segment.garbage += length(segment, offset(location));
+        }
+    }
+
+    private static int length(Segment segment, int offset) {
+        return HEADER + segment.buffer.getInt(offset + 4) + Math.max(segment.buffer.getInt(offset + 8), 0);
+    }
+
+    private static byte[] idBytes(Segment segment, int offset) {
+        byte[] id = new byte[segment.buffer.getInt(offset + 4)];
+        for (int i = 0; i < id.length; i++) {
+            id[i] = segment.buffer.get(offset + HEADER + i);
+        }
+        return id;
+    }
+
+    private static String readId(Segment segment, int offset) {
+        return new String(idBytes(segment, offset), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readUrl(Segment segment, int offset) {
+        int idLength = segment.buffer.getInt(offset + 4);
+        int urlLength = segment.buffer.getInt(offset + 8);
+        int start = offset + HEADER + idLength;
+        if (urlLength < 0 || start + urlLength > segment.end) {
+            throw new IllegalStateException("No URL at " + offset + " of " + segment.path);
+        }
+        byte[] url = new byte[urlLength];
+        ByteBuffer source = segment.buffer.duplicate();
+        source.position(start);
+        source.get(url);
+        return url;
+    }
+
+    private Segment segment(long location) {
+        Segment[] current = segments;
+        int number = (int) (location >>> 32);
+        return number < current.length ? current[number] : null;
+    }
+
+    private static int offset(long location) {
+        return (int) location;
+    }
+
+    private static long location(Segment segment, int offset) {
+        return (long) segment.number << 32 | offset;
+    }
+
+    private Segment add(Segment segment) {
+        Segment[] grown = Arrays.copyOf(segments, Math.max(segments.length, segment.number + 1));
+        grown[segment.number] = segment;
+        segments = grown;
+        return segment;
+    }
+
+    private Path segmentFile(int number) {
+        return directory.resolve(String.format("%08d%s", number, SUFFIX));
+    }
+
+    /**
+     * A memory-mapped file of the log. {@code end} and {@code garbage} are guarded by the write lock.
+     */
+    private static final class Segment {
+        final int number;
+        final Path path;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        int end;
+        long garbage;
+
+        Segment(int number, Path path, int capacity) {
+            this.number = number;
+            this.path = path;
+            try {
+                this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot map " + path, e);
+            }
+        }
+    }
+}
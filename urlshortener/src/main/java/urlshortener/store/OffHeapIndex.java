@@ -0,0 +1,189 @@
+package urlshortener.store;
+
+import java.nio.ByteBuffer;
+import java.util.function.LongConsumer;
+
+/**
+ * A hash table from ids to log locations in a direct buffer, outside of the Java heap.
+ *
+ * Each slot holds a 64 bit hash of the id and the location of its record, 0 marks an empty slot.
+ * Hashes are not unique, so the {@link Matcher} compares the id with the one of the record. Slots
+ * are probed linearly, and removals shift the following slots back instead of leaving tombstones.
+ * Not thread-safe.
+ */
+final class OffHeapIndex {
+
+    interface Matcher {
+        boolean matches(long location, String id);
+    }
+
+    private static final int SLOT = 16;
+    private static final int MAX_CAPACITY = 1 << 26;
+
+    private ByteBuffer table;
+    private int mask;
+    private int size;
+
+    OffHeapIndex(int capacity) {
+        allocate(Math.max(16, Integer.highestOneBit(Math.max(1, capacity - 1)) << 1));
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the location of {@code id}, or -1
+     */
+    long find(long hash, String id, Matcher matcher) {
+        hash = nonZero(hash);
+        ByteBuffer slots = table;
+        int m = slots.capacity() / SLOT - 1;
+        for (int i = slot(hash, m); ; i = (i + 1) & m) {
+            long h = slots.getLong(i * SLOT);
+            if (h == 0) {
+                return -1;
+            }
+            if (h == hash) {
+                long location = slots.getLong(i * SLOT + 8);
+                if (matcher.matches(location, id)) {
+                    return location;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the location of {@code id}.
+     *
+     * @return the previous location, or -1
+     */
+    long put(long hash, long location, String id, Matcher matcher) {
+        hash = nonZero(hash);
+        int i = slot(hash, mask);
+        for (long h; (h = table.getLong(i * SLOT)) != 0; i = (i + 1) & mask) {
+            if (h == hash) {
+                long previous = table.getLong(i * SLOT + 8);
+                if (matcher.matches(previous, id)) {
+                    table.putLong(i * SLOT + 8, location);
+                    return previous;
+                }
+            }
+        }
+        table.putLong(i * SLOT + 8, location);
+        table.putLong(i * SLOT, hash);
+        if (++size > (mask + 1) / 4 * 3) {
+            grow();
+        }
+        return -1;
+    }
+
+    /**
+     * Replaces {@code from} by {@code to} if it is still the location of the id with this hash.
+     */
+    boolean replace(long hash, long from, long to) {
+        hash = nonZero(hash);
+        for (int i = slot(hash, mask); table.getLong(i * SLOT) != 0; i = (i + 1) & mask) {
+            if (table.getLong(i * SLOT) == hash && table.getLong(i * SLOT + 8) == from) {
+                table.putLong(i * SLOT + 8, to);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the location of the removed id, or -1
+     */
+    long remove(long hash, String id, Matcher matcher) {
+        hash = nonZero(hash);
+        int i = slot(hash, mask);
+        long location;
+        while (true) {
+            long h = table.getLong(i * SLOT);
+            if (h == 0) {
+                return -1;
+            }
+            location = table.getLong(i * SLOT + 8);
+            if (h == hash && matcher.matches(location, id)) {
+                break;
+            }
+            i = (i + 1) & mask;
+        }
+        // Shifts back the following slots that would no longer be reachable from their home slot
+        for (int j = (i + 1) & mask; ; j = (j + 1) & mask) {
+            long h = table.getLong(j * SLOT);
+            if (h == 0) {
+                break;
+            }
+            int home = slot(h, mask);
+            if (i <= j ? (home <= i || home > j) : (home <= i && home > j)) {
+                table.putLong(i * SLOT, h);
+                table.putLong(i * SLOT + 8, table.getLong(j * SLOT + 8));
+                i = j;
+            }
+        }
+        table.putLong(i * SLOT, 0);
+        table.putLong(i * SLOT + 8, 0);
+        size--;
+        return location;
+    }
+
+    void forEach(LongConsumer locations) {
+        for (int i = 0; i <= mask; i++) {
+            if (table.getLong(i * SLOT) != 0) {
+                locations.accept(table.getLong(i * SLOT + 8));
+            }
+        }
+    }
+
+    private void grow() {
+        if (mask + 1 >= MAX_CAPACITY) {
+            throw new IllegalStateException("The index is full with " + size + " ids");
+        }
+        ByteBuffer old = table;
+        int oldCapacity = mask + 1;
+        allocate(oldCapacity * 2);
+        for (int i = 0; i < oldCapacity; i++) {
+            long h = old.getLong(i * SLOT);
+            if (h != 0) {
+                int j = slot(h, mask);
+                while (table.getLong(j * SLOT) != 0) {
+                    j = (j + 1) & mask;
+                }
+                table.putLong(j * SLOT + 8, old.getLong(i * SLOT + 8));
+                table.putLong(j * SLOT, h);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        table = ByteBuffer.allocateDirect(capacity * SLOT);
+        mask = capacity - 1;
+    }
+
+    private static int slot(long hash, int mask) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static long nonZero(long hash) {
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * FNV-1a over the characters of the id, finished with the murmur3 mixer.
+     */
+    static long hash(String id) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            h ^= id.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
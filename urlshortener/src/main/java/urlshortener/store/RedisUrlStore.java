@@ -0,0 +1,328 @@
+package urlshortener.store;
+
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Ids stored as plain Redis strings, {@code SET NX} to claim them and {@code GET} to read them.
+ *
+ * Single reads go to a random read replica, if there are any, and to the primary when the
+ * replica does not have the id yet. Writes and batch reads, which check writes, go to the primary.
+ *
+ * An id with {@link LinkLimits} is stored as {@code ~<expires at in epoch milliseconds or 0> <max clicks> <url>}
+ * with a {@code PEXPIRE}, so a {@code GET} still reads it with its limits in one round trip, and its
+ * clicks left are counted down in {@code <id>:clicks} with the same expiry. Creating such an id and
+ * {@link #click clicking} it are Lua scripts on the primary, which see both keys at once; the last
+ * click deletes them. A click on an id without a click limit is a plain read, so a redirect that
+ * does not know the limits of the id yet reads and counts it in one round trip. With read replicas,
+ * such a {@link #redirect} reads the replica instead and only runs the script for an id with a
+ * click limit, so that permanent links keep being served by the replicas.
+ */
+public class RedisUrlStore implements UrlShard {
+
+    static final String CLICKS = ":clicks";
+
+    private static final String LIMITED = "~";
+
+    /**
+     * KEYS id, clicks; ARGV value, ttl in milliseconds or 0, clicks or 0. Returns 1 if the id was free.
+     */
+    private static final RedisScript<Long> CREATE = new DefaultRedisScript<>(
+            "if not redis.call('SET', KEYS[1], ARGV[1], 'NX') then return 0 end\n"
+            + "if ARGV[2] ~= '0' then redis.call('PEXPIRE', KEYS[1], ARGV[2]) end\n"
+            + "if ARGV[3] ~= '0' then\n"
+            + "  redis.call('SET', KEYS[2], ARGV[3])\n"
+            + "  if ARGV[2] ~= '0' then redis.call('PEXPIRE', KEYS[2], ARGV[2]) end\n"
+            + "end\n"
+            + "return 1", Long.class);
+
+    /**
+     * KEYS id, clicks (see {@link #clickKeys}). Returns nil or the value, counting a click if the id
+     * has a click limit. Public for the reactive routes, which share the Redis of this store.
+     */
+    public static final RedisScript<String> CLICK = new DefaultRedisScript<>(
+            "local value = redis.call('GET', KEYS[1])\n"
+            + "if not value or redis.call('EXISTS', KEYS[2]) == 0 then return value end\n"
+            + "if redis.call('DECR', KEYS[2]) <= 0 then redis.call('DEL', KEYS[1], KEYS[2]) end\n"
+            + "return value", String.class);
+
+    private final String name;
+    private final StringRedisTemplate primary;
+    private final List<StringRedisTemplate> replicas;
+    private final List<LettuceConnectionFactory> connections;
+
+    public RedisUrlStore(StringRedisTemplate primary) {
+        this("default", primary, Collections.emptyList(), Collections.emptyList());
+    }
+
+    public RedisUrlStore(String name, StringRedisTemplate primary, List<StringRedisTemplate> replicas) {
+        this(name, primary, replicas, Collections.emptyList());
+    }
+
+    private RedisUrlStore(String name, StringRedisTemplate primary, List<StringRedisTemplate> replicas,
+                          List<LettuceConnectionFactory> connections) {
+        this.name = name;
+        this.primary = primary;
+        this.replicas = replicas;
+        this.connections = connections;
+    }
+
+    /**
+     * Connects to a node written {@code host:port[/database]}, followed by its read replicas
+     * separated by {@code |}, e.g. {@code db1:6379|db1-replica:6379}.
+     *
+     * Like the connection of {@code spring.redis}, single commands share one connection per
+     * server and pipelines borrow one of at most {@code poolSize} connections.
+     */
+    public static RedisUrlStore connect(String node, Duration timeout, int poolSize) {
+        GenericObjectPoolConfig<?> pool = new GenericObjectPoolConfig<>();
+        pool.setMaxTotal(poolSize);
+        pool.setMaxIdle(poolSize);
+        List<LettuceConnectionFactory> connections = new ArrayList<>();
+        List<StringRedisTemplate> templates = new ArrayList<>();
+        for (String server : node.split("\\|")) {
+            LettuceConnectionFactory connection = new LettuceConnectionFactory(standalone(server.trim()),
+                    LettucePoolingClientConfiguration.builder().commandTimeout(timeout).poolConfig(pool).build());
+            connection.afterPropertiesSet();
+            connections.add(connection);
+            templates.add(new StringRedisTemplate(connection));
+        }
+        return new RedisUrlStore(node, templates.get(0), templates.subList(1, templates.size()), connections);
+    }
+
+    static RedisStandaloneConfiguration standalone(String server) {
+        int database = 0;
+        int slash = server.indexOf('/');
+        if (slash >= 0) {
+            database = Integer.parseInt(server.substring(slash + 1));
+            server = server.substring(0, slash);
+        }
+        int colon = server.lastIndexOf(':');
+        RedisStandaloneConfiguration configuration = colon < 0
+                ? new RedisStandaloneConfiguration(server)
+                : new RedisStandaloneConfiguration(server.substring(0, colon), Integer.parseInt(server.substring(colon + 1)));
+        configuration.setDatabase(database);
+        return configuration;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String get(String id) {
+        Link link = resolve(id);
+        return link != null ? link.getUrl() : null;
+    }
+
+    @Override
+    public Link resolve(String id) {
+        if (replicas.isEmpty()) {
+            return link(primary.opsForValue().get(id));
+        }
+        String value = replica().opsForValue().get(id);
+        return link(value != null ? value : primary.opsForValue().get(id));
+    }
+
+    @Override
+    public Link click(String id) {
+        return link(primary.execute(CLICK, clickKeys(id)));
+    }
+
+    @Override
+    public Link redirect(String id) {
+        if (!replicas.isEmpty()) {
+            String value = replica().opsForValue().get(id);
+            if (value != null && !value.startsWith(LIMITED)) {
+                return link(value);
+            }
+        }
+        return click(id);
+    }
+
+    public static List<String> clickKeys(String id) {
+        return Arrays.asList(id, id + CLICKS);
+    }
+
+    /**
+     * Reads a value as stored by this class.
+     *
+     * @return the link, with the limits it was created with, or {@code null} if {@code value} is
+     */
+    public static Link link(String value) {
+        if (value == null || !value.startsWith(LIMITED)) {
+            return Link.permanent(value);
+        }
+        int expiresEnd = value.indexOf(' ');
+        int clicksEnd = value.indexOf(' ', expiresEnd + 1);
+        long expiresAt = Long.parseLong(value.substring(LIMITED.length(), expiresEnd));
+        return new Link(value.substring(clicksEnd + 1), new LinkLimits(expiresAt == 0 ? null : Instant.ofEpochMilli(expiresAt),
+                Long.parseLong(value.substring(expiresEnd + 1, clicksEnd))));
+    }
+
+    private static String value(String url, LinkLimits limits) {
+        Instant expiresAt = limits.getExpiresAt();
+        return LIMITED + (expiresAt != null ? expiresAt.toEpochMilli() : 0) + " " + limits.getMaxClicks() + " " + url;
+    }
+
+    private StringRedisTemplate replica() {
+        return replicas.get(ThreadLocalRandom.current().nextInt(replicas.size()));
+    }
+
+    @Override
+    public List<String> get(List<String> ids) {
+        List<Object> urls = primary.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection commands = (StringRedisConnection) connection;
+            for (String id : ids) {
+                commands.get(id);
+            }
+            return null;
+        });
+        return urls.stream().map(value -> {
+            Link link = link((String) value);
+            return link != null ? link.getUrl() : null;
+        }).collect(Collectors.toList());
+    }
+
+    /**
+     * Reads the limited ids with their clicks left, which only the primary knows, in one pipeline.
+     */
+    @Override
+    public List<Link> export(List<String> ids) {
+        List<Object> values = primary.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection commands = (StringRedisConnection) connection;
+            for (String id : ids) {
+                commands.get(id);
+                commands.get(id + CLICKS);
+            }
+            return null;
+        });
+        List<Link> links = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            Link link = link((String) values.get(2 * i));
+            String clicks = (String) values.get(2 * i + 1);
+            if (link != null && link.getLimits().isClickLimited()) {
+                // the last click deleted the clicks left, and the id with them
+                link = clicks == null ? null : new Link(link.getUrl(),
+                        new LinkLimits(link.getLimits().getExpiresAt(), Long.parseLong(clicks)));
+            }
+            links.add(link);
+        }
+        return links;
+    }
+
+    @Override
+    public boolean setIfAbsent(String id, String url) {
+        return Boolean.TRUE.equals(primary.opsForValue().setIfAbsent(id, url));
+    }
+
+    @Override
+    public List<Boolean> setIfAbsent(List<String> ids, List<String> urls) {
+        List<Object> created = primary.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection commands = (StringRedisConnection) connection;
+            for (int i = 0; i < ids.size(); i++) {
+                commands.setNX(ids.get(i), urls.get(i));
+            }
+            return null;
+        });
+        return created.stream().map(Boolean.TRUE::equals).collect(Collectors.toList());
+    }
+
+    @Override
+    public boolean setIfAbsent(String id, String url, LinkLimits limits) {
+        if (limits.isNone()) {
+            return setIfAbsent(id, url);
+        }
+        return Long.valueOf(1).equals(primary.execute(CREATE, Arrays.asList(id, id + CLICKS),
+                value(url, limits), Long.toString(limits.ttlMillis(Instant.now())), Long.toString(limits.getMaxClicks())));
+    }
+
+    @Override
+    public List<Boolean> setIfAbsent(List<String> ids, List<String> urls, LinkLimits limits) {
+        if (limits.isNone()) {
+            return setIfAbsent(ids, urls);
+        }
+        String ttl = Long.toString(limits.ttlMillis(Instant.now()));
+        String clicks = Long.toString(limits.getMaxClicks());
+        List<Object> created = primary.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection commands = (StringRedisConnection) connection;
+            commands.scriptLoad(CREATE.getScriptAsString());
+            for (int i = 0; i < ids.size(); i++) {
+                commands.evalSha(CREATE.getSha1(), ReturnType.INTEGER, 2, ids.get(i), ids.get(i) + CLICKS,
+                        value(urls.get(i), limits), ttl, clicks);
+            }
+            return null;
+        });
+        return created.subList(1, created.size()).stream().map(Long.valueOf(1)::equals).collect(Collectors.toList());
+    }
+
+    /**
+     * Keys with a {@code :}, such as the click statistics, are not ids and are skipped.
+     */
+    @Override
+    public void scanIds(int count, Consumer<List<String>> batch) {
+        primary.execute((RedisCallback<Void>) connection -> {
+            List<String> ids = new ArrayList<>(count);
+            try (Cursor<byte[]> keys = connection.scan(ScanOptions.scanOptions().count(count).build())) {
+                while (keys.hasNext()) {
+                    String key = new String(keys.next(), StandardCharsets.UTF_8);
+                    if (key.indexOf(':') < 0) {
+                        ids.add(key);
+                    }
+                    if (ids.size() == count) {
+                        batch.accept(ids);
+                        ids = new ArrayList<>(count);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (!ids.isEmpty()) {
+                batch.accept(ids);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void delete(Collection<String> ids) {
+        List<String> keys = new ArrayList<>(ids);
+        ids.forEach(id -> keys.add(id + CLICKS));
+        primary.delete(keys);
+    }
+
+    @Override
+    public void close() {
+        connections.forEach(LettuceConnectionFactory::destroy);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,310 @@
+package urlshortener.store;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Spreads the ids over several {@link UrlShard nodes} with a {@link ConsistentHashRing}.
+ *
+ * Batches are split by node and sent to each node as one batch. {@link #reconfigure} switches
+ * to a new list of nodes at once and then moves the ids that changed owner. Meanwhile an id
+ * missing from its new owner is looked up in its previous one, and is only claimed if it is in
+ * neither.
+ */
+public class ShardedUrlStore implements UrlStore {
+
+    private static final Log log = LogFactory.getLog(ShardedUrlStore.class);
+
+    static final int SCAN_COUNT = 1000;
+
+    private final int virtualNodes;
+    private final Function<String, ? extends UrlShard> connector;
+    private volatile Topology topology;
+
+    /**
+     * @param nodes        the node descriptions, see {@link #nodes(String)}
+     * @param virtualNodes points of each node on the ring
+     * @param connector    connects to the node of a description
+     */
+    public ShardedUrlStore(List<String> nodes, int virtualNodes, Function<String, ? extends UrlShard> connector) {
+        this.virtualNodes = virtualNodes;
+        this.connector = connector;
+        this.topology = topology(connect(nodes, Collections.emptyMap()), null);
+    }
+
+    /**
+     * Splits a comma separated list of nodes.
+     */
+    public static List<String> nodes(String nodes) {
+        return Arrays.stream(nodes.split(","))
+                .map(String::trim)
+                .filter(node -> !node.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    public List<String> getNodes() {
+        return new ArrayList<>(topology.shards.keySet());
+    }
+
+    UrlShard owner(String id) {
+        return topology.ring.get(id);
+    }
+
+    @Override
+    public String get(String id) {
+        Topology current = topology;
+        UrlShard owner = current.ring.get(id);
+        String url = owner.get(id);
+        if (url == null && current.previous != null) {
+            UrlShard before = current.previous.get(id);
+            if (before != owner) {
+                url = before.get(id);
+            }
+        }
+        return url;
+    }
+
+    @Override
+    public List<String> get(List<String> ids) {
+        Topology current = topology;
+        if (current.previous != null) {
+            return ids.stream().map(this::get).collect(Collectors.toList());
+        }
+        String[] urls = new String[ids.size()];
+        for (Map.Entry<UrlShard, List<Integer>> shard : byOwner(current, ids).entrySet()) {
+            List<String> found = shard.getKey().get(select(ids, shard.getValue()));
+            for (int i = 0; i < found.size(); i++) {
+                urls[shard.getValue().get(i)] = found.get(i);
+            }
+        }
+        return Arrays.asList(urls);
+    }
+
+    @Override
+    public Link resolve(String id) {
+        Topology current = topology;
+        UrlShard owner = current.ring.get(id);
+        Link link = owner.resolve(id);
+        if (link == null && current.previous != null) {
+            UrlShard before = current.previous.get(id);
+            if (before != owner) {
+                link = before.resolve(id);
+            }
+        }
+        return link;
+    }
+
+    @Override
+    public Link click(String id) {
+        Topology current = topology;
+        UrlShard owner = current.ring.get(id);
+        Link link = owner.click(id);
+        if (link == null && current.previous != null) {
+            UrlShard before = current.previous.get(id);
+            if (before != owner) {
+                link = before.click(id);
+            }
+        }
+        return link;
+    }
+
+    @Override
+    public Link redirect(String id) {
+        Topology current = topology;
+        UrlShard owner = current.ring.get(id);
+        Link link = owner.redirect(id);
+        if (link == null && current.previous != null) {
+            UrlShard before = current.previous.get(id);
+            if (before != owner) {
+                link = before.redirect(id);
+            }
+        }
+        return link;
+    }
+
+    @Override
+    public boolean setIfAbsent(String id, String url) {
+        return setIfAbsent(id, url, LinkLimits.NONE);
+    }
+
+    @Override
+    public boolean setIfAbsent(String id, String url, LinkLimits limits) {
+        Topology current = topology;
+        UrlShard owner = current.ring.get(id);
+        if (current.previous != null) {
+            UrlShard before = current.previous.get(id);
+            if (before != owner && before.get(id) != null) {
+                return false;
+            }
+        }
+        return owner.setIfAbsent(id, url, limits);
+    }
+
+    @Override
+    public List<Boolean> setIfAbsent(List<String> ids, List<String> urls) {
+        return setIfAbsent(ids, urls, LinkLimits.NONE);
+    }
+
+    @Override
+    public List<Boolean> setIfAbsent(List<String> ids, List<String> urls, LinkLimits limits) {
+        Topology current = topology;
+        Boolean[] created = new Boolean[ids.size()];
+        if (current.previous != null) {
+            for (int i = 0; i < ids.size(); i++) {
+                created[i] = setIfAbsent(ids.get(i), urls.get(i), limits);
+            }
+            return Arrays.asList(created);
+        }
+        for (Map.Entry<UrlShard, List<Integer>> shard : byOwner(current, ids).entrySet()) {
+            List<Boolean> claimed = shard.getKey().setIfAbsent(
+                    select(ids, shard.getValue()), select(urls, shard.getValue()), limits);
+            for (int i = 0; i < claimed.size(); i++) {
+                created[shard.getValue().get(i)] = claimed.get(i);
+            }
+        }
+        return Arrays.asList(created);
+    }
+
+    /**
+     * Lists the ids of every node. Does not run along {@link #reconfigure}, so that no id is
+     * missed while it moves.
+     */
+    @Override
+    public synchronized void scanIds(int count, Consumer<List<String>> batch) {
+        for (UrlShard shard : topology.shards.values()) {
+            shard.scanIds(count, batch);
+        }
+    }
+
+    /**
+     * Switches to {@code nodes}, keeping the connections of the nodes already in use, moves the
+     * ids to their new owners and closes the nodes that were removed.
+     *
+     * @return the number of ids moved
+     */
+    public synchronized long reconfigure(List<String> nodes) {
+        Topology before = topology;
+        Map<String, UrlShard> shards = connect(nodes, before.shards);
+        Topology moving = topology(shards, before.ring);
+        topology = moving;
+        long moved = 0;
+        for (UrlShard source : before.shards.values()) {
+            moved += move(source, moving.ring);
+        }
+        topology = new Topology(shards, moving.ring, null);
+        for (Map.Entry<String, UrlShard> shard : before.shards.entrySet()) {
+            if (!shards.containsKey(shard.getKey())) {
+                shard.getValue().close();
+            }
+        }
+        log.info("Moved " + moved + " ids to the nodes " + shards.keySet());
+        return moved;
+    }
+
+    private long move(UrlShard source, ConsistentHashRing<UrlShard> ring) {
+        AtomicLong moved = new AtomicLong();
+        source.scanIds(SCAN_COUNT, ids -> {
+            Map<UrlShard, List<String>> targets = new LinkedHashMap<>();
+            for (String id : ids) {
+                UrlShard owner = ring.get(id);
+                if (owner != source) {
+                    targets.computeIfAbsent(owner, shard -> new ArrayList<>()).add(id);
+                }
+            }
+            for (Map.Entry<UrlShard, List<String>> target : targets.entrySet()) {
+                List<Link> links = source.export(target.getValue());
+                List<String> present = new ArrayList<>();
+                List<String> presentUrls = new ArrayList<>();
+                List<String> limited = new ArrayList<>();
+                for (int i = 0; i < links.size(); i++) {
+                    Link link = links.get(i);
+                    if (link == null) {
+                        continue;
+                    }
+                    String id = target.getValue().get(i);
+                    if (link.getLimits().isNone()) {
+                        present.add(id);
+                        presentUrls.add(link.getUrl());
+                    } else {
+                        // limited ids keep what is left of their limits, one by one as the limits differ
+                        target.getKey().setIfAbsent(id, link.getUrl(), link.getLimits());
+                        limited.add(id);
+                    }
+                }
+                if (!present.isEmpty()) {
+                    // an id claimed on its new owner meanwhile was free on both, so keeping it is right
+                    target.getKey().setIfAbsent(present, presentUrls);
+                }
+                present.addAll(limited);
+                if (!present.isEmpty()) {
+                    source.delete(present);
+                    moved.addAndGet(present.size());
+                }
+            }
+        });
+        return moved.get();
+    }
+
+    @Override
+    public void close() {
+        topology.shards.values().forEach(UrlShard::close);
+    }
+
+    private Map<String, UrlShard> connect(List<String> nodes, Map<String, UrlShard> existing) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("No nodes");
+        }
+        Map<String, UrlShard> shards = new LinkedHashMap<>();
+        for (String node : nodes) {
+            UrlShard shard = existing.get(node);
+            shards.put(node, shard != null ? shard : connector.apply(node));
+        }
+        return shards;
+    }
+
+    private Topology topology(Map<String, UrlShard> shards, ConsistentHashRing<UrlShard> previous) {
+        return new Topology(shards, new ConsistentHashRing<>(shards, virtualNodes), previous);
+    }
+
+    private static Map<UrlShard, List<Integer>> byOwner(Topology topology, List<String> ids) {
+        Map<UrlShard, List<Integer>> byOwner = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            byOwner.computeIfAbsent(topology.ring.get(ids.get(i)), shard -> new ArrayList<>()).add(i);
+        }
+        return byOwner;
+    }
+
+    private static <T> List<T> select(List<T> values, List<Integer> indexes) {
+        List<T> selected = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            selected.add(values.get(index));
+        }
+        return selected;
+    }
+
+    /**
+     * The nodes, and while ids move the ring they move from.
+     */
+    private static final class Topology {
+        final Map<String, UrlShard> shards;
+        final ConsistentHashRing<UrlShard> ring;
+        final ConsistentHashRing<UrlShard> previous;
+
+        Topology(Map<String, UrlShard> shards, ConsistentHashRing<UrlShard> ring, ConsistentHashRing<UrlShard> previous) {
+            this.shards = shards;
+            this.ring = ring;
+            this.previous = previous;
+        }
+    }
+}
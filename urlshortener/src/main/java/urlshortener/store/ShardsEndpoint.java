@@ -0,0 +1,43 @@
+package urlshortener.store;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The nodes of a {@link ShardedUrlStore}, which a write operation replaces, e.g. over JMX with
+ * {@code reconfigure("db1:6379,db2:6379,db3:6379")}.
+ */
+@Endpoint(id = "shards")
+public class ShardsEndpoint {
+
+    private final ShardedUrlStore store;
+
+    public ShardsEndpoint(ShardedUrlStore store) {
+        this.store = store;
+    }
+
+    @ReadOperation
+    public Map<String, Object> shards() {
+        return topology(store.getNodes(), null);
+    }
+
+    @WriteOperation
+    public Map<String, Object> reconfigure(String nodes) {
+        long moved = store.reconfigure(ShardedUrlStore.nodes(nodes));
+        return topology(store.getNodes(), moved);
+    }
+
+    private static Map<String, Object> topology(List<String> nodes, Long moved) {
+        Map<String, Object> topology = new LinkedHashMap<>();
+        topology.put("nodes", nodes);
+        if (moved != null) {
+            topology.put("moved", moved);
+        }
+        return topology;
+    }
+}
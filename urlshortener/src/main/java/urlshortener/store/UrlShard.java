@@ -0,0 +1,24 @@
+package urlshortener.store;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A node of a {@link ShardedUrlStore}, which can drop its ids when they move to another node.
+ */
+public interface UrlShard extends UrlStore {
+
+    String getName();
+
+    /**
+     * Reads several ids with what is left of their limits, to store them on another node.
+     *
+     * @return the link of each id, in the same order, {@code null} for the unknown ones
+     */
+    default List<Link> export(List<String> ids) {
+        return get(ids).stream().map(Link::permanent).collect(Collectors.toList());
+    }
+
+    void delete(Collection<String> ids);
+}
@@ -0,0 +1,109 @@
+package urlshortener.store;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Where the URLs of the short ids are kept.
+ *
+ * An id is written once and never changes, so a store may answer {@link #get} from a copy
+ * that is behind, as long as it asks the original when the copy does not know the id yet.
+ * An id with {@link LinkLimits} goes away when it expires or has served its clicks, which a copy
+ * may not know yet either; only {@link #click} tells for sure.
+ */
+public interface UrlStore extends AutoCloseable {
+
+    /**
+     * @return the URL of {@code id}, or {@code null} if it is unknown
+     */
+    String get(String id);
+
+    /**
+     * The URLs of several ids, read from the originals.
+     *
+     * @return the URL of each id, in the same order, {@code null} for the unknown ones
+     */
+    List<String> get(List<String> ids);
+
+    /**
+     * Stores {@code url} under {@code id} unless the id is taken.
+     *
+     * @return whether the id was free
+     */
+    boolean setIfAbsent(String id, String url);
+
+    /**
+     * Stores several URLs, {@code urls.get(i)} under {@code ids.get(i)}, unless their id is taken.
+     *
+     * @return whether each id was free, in the same order
+     */
+    List<Boolean> setIfAbsent(List<String> ids, List<String> urls);
+
+    /**
+     * Stores {@code url} under {@code id} unless the id is taken, until the {@code limits} are reached.
+     *
+     * @return whether the id was free
+     * @throws UnsupportedOperationException if the store does not support limits
+     */
+    default boolean setIfAbsent(String id, String url, LinkLimits limits) {
+        if (!limits.isNone()) {
+            throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support expiring links");
+        }
+        return setIfAbsent(id, url);
+    }
+
+    /**
+     * Stores several URLs with the same {@code limits}, see {@link #setIfAbsent(List, List)}.
+     *
+     * @throws UnsupportedOperationException if the store does not support limits
+     */
+    default List<Boolean> setIfAbsent(List<String> ids, List<String> urls, LinkLimits limits) {
+        if (!limits.isNone()) {
+            throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support expiring links");
+        }
+        return setIfAbsent(ids, urls);
+    }
+
+    /**
+     * Looks up the URL of {@code id} with what is left of its limits, like {@link #get}.
+     *
+     * @return the link, or {@code null} if the id is unknown
+     */
+    default Link resolve(String id) {
+        return Link.permanent(get(id));
+    }
+
+    /**
+     * Looks up {@code id} on the original, like {@link #resolve}, and counts a redirect if it is
+     * {@link LinkLimits#isClickLimited click limited}, removing the id with its last click.
+     *
+     * @return the link, or {@code null} if the id is unknown or has served all its clicks
+     */
+    default Link click(String id) {
+        return resolve(id);
+    }
+
+    /**
+     * Looks up {@code id} for a redirect that does not know its limits yet, counting it like
+     * {@link #click} if it is click limited. Stores with read replicas read it there and only go
+     * to the original for an id with a click limit.
+     *
+     * @return the link, or {@code null} if the id is unknown or has served all its clicks
+     */
+    default Link redirect(String id) {
+        return click(id);
+    }
+
+    /**
+     * Lists the ids of the store, in batches of about {@code count} ids. Ids added or removed
+     * meanwhile may or may not be listed.
+     */
+    void scanIds(int count, Consumer<List<String>> batch);
+
+    /**
+     * Closes the connections opened by the store, if any.
+     */
+    @Override
+    default void close() {
+    }
+}
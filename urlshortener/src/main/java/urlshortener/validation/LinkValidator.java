@@ -0,0 +1,61 @@
+package urlshortener.validation;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.commons.validator.routines.UrlValidator;
+
+/**
+ * Validates the URLs accepted by the shortener: absolute {@code http} and {@code https} URLs.
+ *
+ * The commons-validator {@link UrlValidator} is immutable, so a single instance is shared. A
+ * cheap scan rejects most invalid input before it, and the results of the full validation can
+ * be cached by URL.
+ */
+public class LinkValidator {
+
+    private static final String[] SCHEMES = {"http", "https"};
+
+    private final UrlValidator urlValidator = new UrlValidator(SCHEMES);
+    private final Cache<String, Boolean> results;
+
+    /**
+     * @param cacheSize how many validation results are cached, 0 disables the cache
+     */
+    public LinkValidator(long cacheSize) {
+        this.results = cacheSize > 0 ? Caffeine.newBuilder().maximumSize(cacheSize).build() : null;
+    }
+
+    public boolean isValid(String url) {
+        if (!hasHttpAuthority(url)) {
+            return false;
+        }
+        if (results == null) {
+            return urlValidator.isValid(url);
+        }
+        return results.get(url, urlValidator::isValid);
+    }
+
+    /**
+     * Checks without allocating that {@code url} starts with {@code http://} or {@code https://},
+     * in any case, followed by the start of an authority. Every URL accepted by the full
+     * validation passes this check.
+     */
+    static boolean hasHttpAuthority(String url) {
+        if (url == null) {
+            return false;
+        }
+        int authority;
+        if (url.regionMatches(true, 0, "http://", 0, 7)) {
+            authority = 7;
+        } else if (url.regionMatches(true, 0, "https://", 0, 8)) {
+            authority = 8;
+        } else {
+            return false;
+        }
+        if (url.length() == authority) {
+            return false;
+        }
+        char first = url.charAt(authority);
+        return first != '/' && first != '?' && first != '#';
+    }
+}
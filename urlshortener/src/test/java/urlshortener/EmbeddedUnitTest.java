@@ -0,0 +1,60 @@
+package urlshortener;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The embedded profile, with the ids in a local log, leaves Redis out entirely.
+ */
+@RunWith(SpringRunner.class)
+@WebMvcTest(App.class)
+@ActiveProfiles("embedded")
+@TestPropertySource(properties = {"urlshortener.store.directory=build/embedded-unit-test",
+        "urlshortener.ratelimit.limits=POST /api=100"})
+public class EmbeddedUnitTest {
+
+    private static final String HTTP_EXAMPLE_COM = "http://example.com/";
+    private static final String HASH = "f684a3c4";
+
+    @MockBean
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    public void redisIsNotUsed() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mvc.perform(post("/api").header("Idempotency-Key", "embedded")
+                    .contentType(MediaType.APPLICATION_FORM_URLENCODED).param("url", HTTP_EXAMPLE_COM))
+                    .andExpect(status().isCreated())
+                    .andExpect(header().string("Location", is("http://localhost/api/" + HASH)));
+        }
+        mvc.perform(post("/api").header("Idempotency-Key", "embedded")
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED).param("url", "http://example.org/"))
+                .andExpect(status().isUnprocessableEntity());
+        mvc.perform(get("/api/" + HASH))
+                .andExpect(status().isTemporaryRedirect())
+                .andExpect(header().string("Location", is(HTTP_EXAMPLE_COM)));
+        mvc.perform(get("/api/" + HASH + "/stats"))
+                .andExpect(status().isNotImplemented());
+
+        verifyZeroInteractions(stringRedisTemplate);
+    }
+}
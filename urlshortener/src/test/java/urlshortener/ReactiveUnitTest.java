@@ -0,0 +1,105 @@
+package urlshortener;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.BodyInserters;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.main.web-application-type=reactive")
+@AutoConfigureWebTestClient
+@ActiveProfiles("reactive")
+public class ReactiveUnitTest {
+
+	@MockBean
+	private ReactiveValueOperations<String, String> valueOperations;
+
+	@MockBean
+	private ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+
+	@Autowired
+	private WebTestClient client;
+private static final String HTTP_EXAMPLE_COM = "http://example.com/";
+private static final String HASH = "f684a3c4";
+private static final String HASH_HTTP_EXAMPLE_COM = "http://localhost/api/"+HASH;
+
+@Test
+public void testCreation() throws Exception {
+	given(reactiveStringRedisTemplate.opsForValue()).willReturn(valueOperations);
+	given(valueOperations.setIfAbsent(HASH, HTTP_EXAMPLE_COM)).willReturn(Mono.just(true));
+	this.client.post().uri("http://localhost/api")
+			.body(BodyInserters.fromFormData("url", HTTP_EXAMPLE_COM))
+			.exchange()
+			.expectStatus().isCreated()
+			.expectHeader().valueEquals("Location", HASH_HTTP_EXAMPLE_COM);
+}
+
+@Test
+public void testRedirection() throws Exception {
+	given(reactiveStringRedisTemplate.execute(any(RedisScript.class), eq(Arrays.asList(HASH, HASH + ":clicks")))).willReturn(Flux.just(HTTP_EXAMPLE_COM));
+	this.client.get().uri("/api/"+HASH)
+			.exchange()
+			.expectStatus().isTemporaryRedirect()
+			.expectHeader().valueEquals("Location", HTTP_EXAMPLE_COM);
+}
+
+@Test
+public void testClickLimitedRedirectionIsCountedEachTime() throws Exception {
+	given(reactiveStringRedisTemplate.execute(any(RedisScript.class), eq(Arrays.asList(HASH, HASH + ":clicks")))).willReturn(Flux.just("~0 2 " + HTTP_EXAMPLE_COM), Flux.empty());
+	this.client.get().uri("/api/"+HASH)
+			.exchange()
+			.expectStatus().isTemporaryRedirect()
+			.expectHeader().doesNotExist("Cache-Control");
+	this.client.get().uri("/api/"+HASH)
+			.exchange()
+			.expectStatus().isNotFound();
+	verify(reactiveStringRedisTemplate, times(2)).execute(any(RedisScript.class), eq(Arrays.asList(HASH, HASH + ":clicks")));
+}
+
+@Test
+public void testCreationWithLimitsIsNotImplemented() throws Exception {
+	this.client.post().uri("http://localhost/api")
+			.body(BodyInserters.fromFormData("url", HTTP_EXAMPLE_COM).with("maxClicks", "1"))
+			.exchange()
+			.expectStatus().isEqualTo(HttpStatus.NOT_IMPLEMENTED);
+}
+
+@Test
+public void testCreationWithAnIdempotencyKeyIsNotImplemented() throws Exception {
+	this.client.post().uri("http://localhost/api").header("Idempotency-Key", "retry")
+			.body(BodyInserters.fromFormData("url", HTTP_EXAMPLE_COM))
+			.exchange()
+			.expectStatus().isEqualTo(HttpStatus.NOT_IMPLEMENTED);
+}
+
+@Test
+public void testBatchCreationIsNotImplemented() throws Exception {
+	this.client.post().uri("http://localhost/api/batch")
+			.contentType(MediaType.TEXT_PLAIN)
+			.syncBody(HTTP_EXAMPLE_COM + "\n")
+			.exchange()
+			.expectStatus().isEqualTo(HttpStatus.NOT_IMPLEMENTED);
+}
+
+}
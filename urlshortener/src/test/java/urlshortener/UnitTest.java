@@ -5,16 +5,27 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.Arrays;
+import java.util.Collections;
+
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -37,6 +48,7 @@ private static final String HASH_HTTP_EXAMPLE_COM = "http://localhost/api/"+HASH
 @Test
 public void testCreation() throws Exception {
 	given(stringRedisTemplate.opsForValue()).willReturn(valueOperations);
+	given(valueOperations.setIfAbsent(HASH, HTTP_EXAMPLE_COM)).willReturn(true);
 	this.mvc.perform(post("/api")
 			.contentType(MediaType.APPLICATION_FORM_URLENCODED).param("url", HTTP_EXAMPLE_COM)).
 			andExpect(status().isCreated()).
@@ -45,11 +57,72 @@ public void testCreation() throws Exception {
 
 @Test
 public void testRedirection() throws Exception {
-	given(stringRedisTemplate.opsForValue()).willReturn(valueOperations);
-	given(valueOperations.get(HASH)).willReturn(HTTP_EXAMPLE_COM);
+	given(stringRedisTemplate.execute(any(RedisScript.class), eq(Arrays.asList(HASH, HASH + ":clicks")))).willReturn(HTTP_EXAMPLE_COM);
 	this.mvc.perform(get("/api/"+HASH)).
 			andExpect(status().isTemporaryRedirect()).
 			andExpect(header().string("Location", is(HTTP_EXAMPLE_COM)));
 }
 
+@Test
+public void testExpiringRedirection() throws Exception {
+	given(stringRedisTemplate.execute(any(RedisScript.class), eq(Arrays.asList(HASH, HASH + ":clicks")))).willReturn("~4102444800000 0 " + HTTP_EXAMPLE_COM);
+	this.mvc.perform(get("/api/"+HASH)).
+			andExpect(status().isTemporaryRedirect()).
+			andExpect(header().string("Location", is(HTTP_EXAMPLE_COM))).
+			andExpect(header().doesNotExist("Cache-Control"));
+}
+
+@Test
+public void testClickLimitedRedirectionIsCountedEachTime() throws Exception {
+	given(stringRedisTemplate.execute(any(RedisScript.class), eq(Arrays.asList(HASH, HASH + ":clicks")))).willReturn("~0 2 " + HTTP_EXAMPLE_COM, (String) null);
+	this.mvc.perform(get("/api/"+HASH)).
+			andExpect(status().isTemporaryRedirect());
+	this.mvc.perform(get("/api/"+HASH)).
+			andExpect(status().isNotFound());
+	verify(stringRedisTemplate, times(2)).execute(any(RedisScript.class), eq(Arrays.asList(HASH, HASH + ":clicks")));
+}
+
+@Test
+public void testCreationWithInvalidTtl() throws Exception {
+	this.mvc.perform(post("/api")
+			.contentType(MediaType.APPLICATION_FORM_URLENCODED).param("url", HTTP_EXAMPLE_COM).param("ttl", "-1h")).
+			andExpect(status().isBadRequest());
+}
+
+@Test
+public void testBatchCreation() throws Exception {
+	given(stringRedisTemplate.executePipelined(any(RedisCallback.class))).willReturn(Collections.singletonList(true));
+	this.mvc.perform(post("/api/batch")
+			.contentType(MediaType.TEXT_PLAIN).content(HTTP_EXAMPLE_COM + "\nnot a url\n")).
+			andExpect(status().isOk()).
+			andExpect(content().string(
+					"{\"url\":\"" + HTTP_EXAMPLE_COM + "\",\"id\":\"" + HASH + "\",\"location\":\"" + HASH_HTTP_EXAMPLE_COM + "\"}\n" +
+					"{\"url\":\"not a url\",\"error\":\"invalid url\"}\n"));
+}
+
+@Test
+public void testBatchCreationSkipsElementsThatAreNotStrings() throws Exception {
+	given(stringRedisTemplate.executePipelined(any(RedisCallback.class))).willReturn(Collections.singletonList(true));
+	this.mvc.perform(post("/api/batch")
+			.contentType(MediaType.APPLICATION_JSON).content("[null, {\"url\": [1]}, [2], \"" + HTTP_EXAMPLE_COM + "\"]")).
+			andExpect(status().isOk()).
+			andExpect(content().string(
+					"{\"error\":\"not a string\"}\n" +
+					"{\"error\":\"not a string\"}\n" +
+					"{\"error\":\"not a string\"}\n" +
+					"{\"url\":\"" + HTTP_EXAMPLE_COM + "\",\"id\":\"" + HASH + "\",\"location\":\"" + HASH_HTTP_EXAMPLE_COM + "\"}\n"));
+}
+
+@Test
+public void testBatchCreationOfSomethingElseThanAJsonArrayIsABadRequest() throws Exception {
+	this.mvc.perform(post("/api/batch")
+			.contentType(MediaType.APPLICATION_JSON).content("{\"url\": \"" + HTTP_EXAMPLE_COM + "\"}")).
+			andExpect(status().isBadRequest()).
+			andExpect(content().string("Expected a JSON array of URLs"));
+	this.mvc.perform(post("/api/batch")
+			.contentType(MediaType.APPLICATION_JSON).content("[\"" + HTTP_EXAMPLE_COM + "\", }")).
+			andExpect(status().isBadRequest()).
+			andExpect(content().string(startsWith("Malformed JSON array of URLs")));
+}
+
 }
@@ -0,0 +1,160 @@
+package urlshortener.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import urlshortener.store.UrlStore;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class IdFilterTest {
+
+    private static final Duration CHECK = Duration.ofMillis(50);
+    private static final Duration RESCAN = Duration.ofHours(1);
+
+    @Test
+    public void disabledFilterLetsEveryIdThrough() throws Exception {
+        IdFilter filter = new IdFilter(store(), null, 0, 0.01, CHECK, RESCAN);
+        filter.afterPropertiesSet();
+
+        assertThat(filter.isEnabled(), is(false));
+        assertThat(filter.mightContain("unknown"), is(true));
+        filter.put("unknown");
+        filter.destroy();
+    }
+
+    @Test
+    public void unknownIdsAreRejectedOnceLoaded() throws Exception {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            ids.add("id" + i);
+        }
+        IdFilter filter = new IdFilter(store(ids.subList(0, 5000), ids.subList(5000, 10_000)), null, 100_000, 0.01, CHECK, RESCAN);
+        assertThat(filter.mightContain("unknown"), is(true));
+
+        filter.afterPropertiesSet();
+        awaitLoaded(filter);
+        filter.put("created");
+
+        for (String id : ids) {
+            assertThat(filter.mightContain(id), is(true));
+        }
+        assertThat(filter.mightContain("created"), is(true));
+        int passed = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain("unknown" + i)) {
+                filter.falsePositive();
+                passed++;
+            }
+        }
+        assertThat(passed < 100, is(true));
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        filter.bindTo(registry);
+        assertThat(registry.get("idfilter.rejected").functionCounter().count(), is(10_000.0 - passed));
+        assertThat(registry.get("idfilter.false.positives").functionCounter().count(), is((double) passed));
+        assertThat(registry.get("idfilter.expected.fpp").gauge().value() < 0.01, is(true));
+        // about 9.6 bits per id for 1%
+        double bytes = registry.get("idfilter.memory").gauge().value();
+        assertThat(bytes > 110_000 && bytes < 130_000, is(true));
+        filter.destroy();
+    }
+
+    /**
+     * Runs against the local Redis.
+     */
+    @Test
+    public void idsCreatedByAnotherInstanceArePublished() throws Exception {
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory("localhost", 6379);
+        connectionFactory.afterPropertiesSet();
+        StringRedisTemplate sharedData = new StringRedisTemplate(connectionFactory);
+        IdFilter creator = new IdFilter(store(), sharedData, 1000, 0.01, CHECK, RESCAN);
+        IdFilter other = new IdFilter(store(), sharedData, 1000, 0.01, CHECK, RESCAN);
+        creator.afterPropertiesSet();
+        other.afterPropertiesSet();
+        awaitLoaded(creator);
+        awaitLoaded(other);
+
+        creator.put("single");
+        creator.putAll(Arrays.asList("first", "second"));
+
+        for (String id : Arrays.asList("single", "first", "second")) {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!other.mightContain(id) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(other.mightContain(id), is(true));
+        }
+        creator.destroy();
+        other.destroy();
+        connectionFactory.destroy();
+    }
+
+    /**
+     * Runs against the local Redis.
+     */
+    @Test
+    public void idsMissedWhileUnsubscribedAreLetThroughUntilListed() throws Exception {
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory("localhost", 6379);
+        connectionFactory.afterPropertiesSet();
+        StringRedisTemplate sharedData = new StringRedisTemplate(connectionFactory);
+        List<String> stored = new ArrayList<>();
+        IdFilter creator = new IdFilter(store(), sharedData, 1000, 0.01, CHECK, RESCAN);
+        IdFilter other = new IdFilter(store(stored), sharedData, 1000, 0.01, CHECK, RESCAN);
+        creator.afterPropertiesSet();
+        other.afterPropertiesSet();
+        awaitLoaded(other);
+        assertThat(other.mightContain("missed"), is(false));
+
+        other.subscriber.stop();
+        stored.add("missed");
+        creator.put("missed");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (other.isLoaded() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(other.isLoaded(), is(false));
+        assertThat(other.mightContain("missed"), is(true));
+
+        // subscribed again, the ids are listed before the filter is trusted
+        other.subscriber.start();
+        awaitLoaded(other);
+        assertThat(other.mightContain("missed"), is(true));
+        creator.destroy();
+        other.destroy();
+        connectionFactory.destroy();
+    }
+
+    @SafeVarargs
+    @SuppressWarnings("unchecked")
+    private static UrlStore store(List<String>... batches) {
+        UrlStore store = mock(UrlStore.class);
+        doAnswer(invocation -> {
+            for (List<String> batch : batches) {
+                ((Consumer<List<String>>) invocation.getArgument(1)).accept(batch);
+            }
+            return null;
+        }).when(store).scanIds(anyInt(), any());
+        return store;
+    }
+
+    private static void awaitLoaded(IdFilter filter) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!filter.isLoaded() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(filter.isLoaded(), is(true));
+    }
+}
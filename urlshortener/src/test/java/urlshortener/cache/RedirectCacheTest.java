@@ -0,0 +1,114 @@
+package urlshortener.cache;
+
+import org.junit.Test;
+import urlshortener.store.Link;
+import urlshortener.store.LinkLimits;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class RedirectCacheTest {
+
+    private static final String HTTP_EXAMPLE_COM = "http://example.com/";
+    private static final String HASH = "f684a3c4";
+
+    private final RedirectCache cache = new RedirectCache(100, Duration.ofMinutes(10), Duration.ofMinutes(1));
+
+    @Test
+    public void hitsDoNotCallTheLoader() {
+        AtomicInteger loads = new AtomicInteger();
+        for (int i = 0; i < 10; i++) {
+            assertThat(cache.get(HASH, id -> {
+                loads.incrementAndGet();
+                return HTTP_EXAMPLE_COM;
+            }), is(HTTP_EXAMPLE_COM));
+        }
+        assertThat(loads.get(), is(1));
+    }
+
+    @Test
+    public void unknownIdsAreCachedAsNegativeEntries() {
+        AtomicInteger loads = new AtomicInteger();
+        for (int i = 0; i < 10; i++) {
+            assertThat(cache.get(HASH, id -> {
+                loads.incrementAndGet();
+                return null;
+            }), is(nullValue()));
+        }
+        assertThat(loads.get(), is(1));
+    }
+
+    @Test
+    public void putReplacesNegativeEntries() {
+        cache.get(HASH, id -> null);
+        cache.put(HASH, HTTP_EXAMPLE_COM);
+        assertThat(cache.get(HASH, id -> null), is(HTTP_EXAMPLE_COM));
+    }
+
+    @Test
+    public void invalidateForcesAReload() {
+        cache.put(HASH, HTTP_EXAMPLE_COM);
+        cache.invalidate(HASH);
+        assertThat(cache.get(HASH, id -> null), is(nullValue()));
+    }
+
+    @Test
+    public void concurrentRedirectMissesShareOneLoadAndCountTheirClicks() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        AtomicInteger clicks = new AtomicInteger();
+        Link link = new Link(HTTP_EXAMPLE_COM, new LinkLimits(null, 10));
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        List<Future<Link>> redirects = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            redirects.add(threads.submit(() -> cache.redirect(HASH, id -> {
+                loads.incrementAndGet();
+                try {
+                    // the other threads miss meanwhile and wait for this load
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return link;
+            }, id -> {
+                clicks.incrementAndGet();
+                return link;
+            })));
+        }
+        for (Future<Link> redirect : redirects) {
+            assertThat(redirect.get(), is(link));
+        }
+        threads.shutdown();
+
+        assertThat(loads.get(), is(1));
+        assertThat(clicks.get(), is(7));
+    }
+
+    @Test
+    public void redirectsOfPermanentLinksAreNotCounted() {
+        AtomicInteger clicks = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            assertThat(cache.redirect(HASH, id -> Link.permanent(HTTP_EXAMPLE_COM), id -> {
+                clicks.incrementAndGet();
+                return null;
+            }).getUrl(), is(HTTP_EXAMPLE_COM));
+        }
+        assertThat(clicks.get(), is(0));
+    }
+
+    @Test
+    public void linksGoneOnAClickAreCachedAsUnknown() {
+        Link link = new Link(HTTP_EXAMPLE_COM, new LinkLimits(null, 1));
+        assertThat(cache.redirect(HASH, id -> link, id -> null), is(link));
+        assertThat(cache.redirect(HASH, id -> link, id -> null), is(nullValue()));
+        assertThat(cache.getIfPresent(HASH).isPresent(), is(false));
+    }
+}
@@ -0,0 +1,109 @@
+package urlshortener.id;
+
+import org.junit.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import urlshortener.store.RedisUrlStore;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class IdGeneratorTest {
+
+    private static final String HTTP_EXAMPLE_COM = "http://example.com/";
+    private static final String HASH = "f684a3c4";
+
+    @Test
+    public void murmur3KeepsTheOriginalIds() {
+        assertThat(new Murmur3IdGenerator().generate(HTTP_EXAMPLE_COM, 0), is(HASH));
+    }
+
+    @Test
+    public void base62IdsAreStableAndGrowOnCollisions() {
+        IdGenerator generator = new Base62HashIdGenerator(7);
+        String id = generator.generate(HTTP_EXAMPLE_COM, 0);
+        assertThat(id.length(), is(7));
+        assertThat(id.matches("[0-9A-Za-z]+"), is(true));
+        assertThat(generator.generate(HTTP_EXAMPLE_COM, 0), is(id));
+        assertThat(generator.generate(HTTP_EXAMPLE_COM, 1), is(generator.generate(HTTP_EXAMPLE_COM, 1)));
+        assertThat(generator.generate(HTTP_EXAMPLE_COM, 1).length(), is(8));
+        assertThat(generator.generate(HTTP_EXAMPLE_COM, 1).startsWith(id), is(true));
+        assertThat(generator.generate(HTTP_EXAMPLE_COM, 20).length(), is(Base62HashIdGenerator.MAX_LENGTH));
+    }
+
+    @Test
+    public void base62EncodesUnsignedValues() {
+        assertThat(Base62.encode(0), is("0"));
+        assertThat(Base62.encode(61), is("z"));
+        assertThat(Base62.encode(62), is("10"));
+        assertThat(Base62.encode(-1L), is("LygHa16AHYF"));
+    }
+
+    @Test
+    public void counterIdsAreUniqueAcrossBlocksAndThreads() {
+        AtomicLong counter = new AtomicLong();
+        AtomicLong reservations = new AtomicLong();
+        IdGenerator generator = new CounterIdGenerator(size -> {
+            reservations.incrementAndGet();
+            return counter.addAndGet(size);
+        }, 100);
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        IntStream.range(0, 10_000).parallel().forEach(i -> ids.add(generator.generate(HTTP_EXAMPLE_COM, 0)));
+        assertThat(ids.size(), is(10_000));
+        assertThat(reservations.get(), is(100L));
+    }
+
+    @Test
+    public void snowflakeIdsAreUniqueWithinAMillisecond() {
+        Clock frozen = Clock.fixed(Instant.parse("2019-10-01T00:00:00Z"), ZoneOffset.UTC);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(3, frozen);
+        long first = generator.nextId();
+        long second = generator.nextId();
+        assertThat(second, is(first + 1));
+        assertThat((first >>> SnowflakeIdGenerator.SEQUENCE_BITS) & ((1 << SnowflakeIdGenerator.NODE_BITS) - 1), is(3L));
+        assertThat(first >>> (SnowflakeIdGenerator.NODE_BITS + SnowflakeIdGenerator.SEQUENCE_BITS),
+                is(frozen.millis() - SnowflakeIdGenerator.EPOCH));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void registryProbesOnCollisions() {
+        StringRedisTemplate sharedData = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        given(sharedData.opsForValue()).willReturn(values);
+        IdGenerator generator = new Murmur3IdGenerator();
+        String first = generator.generate(HTTP_EXAMPLE_COM, 0);
+        String second = generator.generate(HTTP_EXAMPLE_COM, 1);
+        given(values.setIfAbsent(first, HTTP_EXAMPLE_COM)).willReturn(false);
+        given(values.get(first)).willReturn("http://example.org/");
+        given(values.setIfAbsent(second, HTTP_EXAMPLE_COM)).willReturn(true);
+
+        String id = new IdRegistry(new RedisUrlStore(sharedData), generator, 8).register(HTTP_EXAMPLE_COM);
+
+        assertThat(id, is(second));
+        assertThat(id, is(not(first)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void registryReusesTheIdOfTheSameUrl() {
+        StringRedisTemplate sharedData = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        given(sharedData.opsForValue()).willReturn(values);
+        given(values.setIfAbsent(HASH, HTTP_EXAMPLE_COM)).willReturn(false);
+        given(values.get(HASH)).willReturn(HTTP_EXAMPLE_COM);
+
+        assertThat(new IdRegistry(new RedisUrlStore(sharedData), new Murmur3IdGenerator(), 8).register(HTTP_EXAMPLE_COM), is(HASH));
+    }
+}
@@ -0,0 +1,165 @@
+package urlshortener.id;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import urlshortener.store.LinkLimits;
+import urlshortener.store.UrlStore;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class IdempotencyTest {
+
+    private static final String HTTP_EXAMPLE_COM = "http://example.com/";
+    private static final String HASH = "f684a3c4";
+    private static final Duration KEY_TTL = Duration.ofHours(24);
+
+    private final UrlStore urlStore = mock(UrlStore.class);
+    private final IdRegistry registry = new IdRegistry(urlStore, new Murmur3IdGenerator(), 8);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void repeatedUrlsAreAnsweredInProcess() {
+        given(urlStore.setIfAbsent(HASH, HTTP_EXAMPLE_COM)).willReturn(true, false);
+        given(urlStore.get(HASH)).willReturn(HTTP_EXAMPLE_COM);
+        Idempotency idempotency = new Idempotency(registry, mock(StringRedisTemplate.class), 100, KEY_TTL);
+
+        assertThat(idempotency.recent(HTTP_EXAMPLE_COM, null), is(nullValue()));
+        assertThat(idempotency.register(HTTP_EXAMPLE_COM, null), is(HASH));
+        for (int i = 0; i < 3; i++) {
+            assertThat(idempotency.recent(HTTP_EXAMPLE_COM, null), is(HASH));
+        }
+        verify(urlStore, times(1)).setIfAbsent(anyString(), anyString());
+
+        // another instance finds the mapping in the store and does not write it again
+        Idempotency other = new Idempotency(registry, mock(StringRedisTemplate.class), 100, KEY_TTL);
+        assertThat(other.register(HTTP_EXAMPLE_COM, null), is(HASH));
+
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        idempotency.bindTo(meters);
+        assertThat(meters.get("shortener.submissions").tag("outcome", "created").functionCounter().count(), is(1.0));
+        assertThat(meters.get("shortener.submissions").tag("outcome", "existing").functionCounter().count(), is(1.0));
+        assertThat(meters.get("shortener.submissions").tag("outcome", "recent").functionCounter().count(), is(3.0));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void keysGiveTheIdOfTheFirstRequest() {
+        StringRedisTemplate sharedData = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        given(sharedData.opsForValue()).willReturn(values);
+        given(values.setIfAbsent("idempotency:retry", Idempotency.CLAIMED, Idempotency.CLAIM_TTL)).willReturn(true);
+        given(urlStore.setIfAbsent(HASH, HTTP_EXAMPLE_COM)).willReturn(true);
+        Idempotency idempotency = new Idempotency(registry, sharedData, 100, KEY_TTL);
+
+        assertThat(idempotency.register(HTTP_EXAMPLE_COM, "retry"), is(HASH));
+        assertThat(idempotency.recent(HTTP_EXAMPLE_COM, "retry"), is(HASH));
+        verify(values).set("idempotency:retry", HASH + " 0 0 " + HTTP_EXAMPLE_COM, KEY_TTL);
+
+        // a retry reaching another instance reads the key instead of registering the URL
+        given(values.get("idempotency:retry")).willReturn("other 0 0 " + HTTP_EXAMPLE_COM);
+        Idempotency other = new Idempotency(registry, sharedData, 100, KEY_TTL);
+        assertThat(other.recent(HTTP_EXAMPLE_COM, "retry"), is(nullValue()));
+        assertThat(other.register(HTTP_EXAMPLE_COM, "retry"), is("other"));
+        assertThat(other.recent(HTTP_EXAMPLE_COM, "retry"), is("other"));
+        verify(urlStore, times(1)).setIfAbsent(anyString(), anyString());
+        verify(values, times(1)).setIfAbsent(anyString(), anyString(), any(Duration.class));
+
+        try {
+            other.recent("http://example.org/", "retry");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is("Idempotency-Key retry was used for another URL"));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void concurrentRequestsWithAKeyGetTheIdOfTheWinner() {
+        StringRedisTemplate sharedData = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        given(sharedData.opsForValue()).willReturn(values);
+        // the winner claims the key first and stores its submission once registered
+        given(values.get("idempotency:race")).willReturn(null, Idempotency.CLAIMED, "winner 0 0 " + HTTP_EXAMPLE_COM);
+        given(values.setIfAbsent(anyString(), anyString(), any(Duration.class))).willReturn(false);
+
+        Idempotency idempotency = new Idempotency(registry, sharedData, 100, KEY_TTL);
+        assertThat(idempotency.register(HTTP_EXAMPLE_COM, "race"), is("winner"));
+        assertThat(idempotency.recent(HTTP_EXAMPLE_COM, "race"), is("winner"));
+        verify(urlStore, never()).setIfAbsent(anyString(), anyString());
+        verify(urlStore, never()).get(anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void aFailedRegistrationReleasesTheKey() {
+        StringRedisTemplate sharedData = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        given(sharedData.opsForValue()).willReturn(values);
+        given(values.setIfAbsent("idempotency:failed", Idempotency.CLAIMED, Idempotency.CLAIM_TTL)).willReturn(true);
+        given(urlStore.setIfAbsent(HASH, HTTP_EXAMPLE_COM)).willThrow(new IllegalStateException("down"));
+
+        Idempotency idempotency = new Idempotency(registry, sharedData, 100, KEY_TTL);
+        try {
+            idempotency.register(HTTP_EXAMPLE_COM, "failed");
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), is("down"));
+        }
+        verify(sharedData).delete("idempotency:failed");
+        verify(values, never()).set(anyString(), anyString(), any(Duration.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void keysAreOnlyReplayedForTheSameLimits() {
+        StringRedisTemplate sharedData = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        given(sharedData.opsForValue()).willReturn(values);
+        given(values.setIfAbsent(anyString(), anyString(), any(Duration.class))).willReturn(true);
+        given(urlStore.setIfAbsent(anyString(), eq(HTTP_EXAMPLE_COM), any(LinkLimits.class))).willReturn(true);
+        Idempotency idempotency = new Idempotency(registry, sharedData, 100, KEY_TTL);
+
+        Instant first = Instant.parse("2019-10-01T10:00:00Z");
+        String id = idempotency.register(HTTP_EXAMPLE_COM, "limited",
+                new LinkLimits(first.plus(Duration.ofDays(7)), 10), first);
+        verify(values).set("idempotency:limited", id + " 604800000 10 " + HTTP_EXAMPLE_COM, KEY_TTL);
+
+        // a retry asks for the same ttl, which expires later
+        Instant retry = first.plusSeconds(5);
+        assertThat(idempotency.recent(HTTP_EXAMPLE_COM, "limited",
+                new LinkLimits(retry.plus(Duration.ofDays(7)), 10), retry), is(id));
+
+        // as does another instance reading the key
+        given(values.get("idempotency:limited")).willReturn(id + " 604800000 10 " + HTTP_EXAMPLE_COM);
+        Idempotency other = new Idempotency(registry, sharedData, 100, KEY_TTL);
+        assertThat(other.register(HTTP_EXAMPLE_COM, "limited",
+                new LinkLimits(retry.plus(Duration.ofDays(7)), 10), retry), is(id));
+
+        for (LinkLimits limits : new LinkLimits[] {new LinkLimits(retry.plus(Duration.ofDays(7)), 20),
+                new LinkLimits(retry.plus(Duration.ofDays(1)), 10), new LinkLimits(null, 10), LinkLimits.NONE}) {
+            try {
+                other.recent(HTTP_EXAMPLE_COM, "limited", limits, retry);
+                fail(limits.toString());
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getMessage(), is("Idempotency-Key limited was used with other limits"));
+            }
+        }
+        verify(urlStore, times(1)).setIfAbsent(anyString(), anyString(), any(LinkLimits.class));
+    }
+}
@@ -0,0 +1,149 @@
+package urlshortener.ratelimit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class RateLimitFilterTest {
+
+    private final AtomicLong millis = new AtomicLong(1_000_000);
+    private final Clock clock = mock(Clock.class);
+
+    @Before
+    public void setUp() {
+        given(clock.millis()).willAnswer(invocation -> millis.get());
+    }
+
+    @Test
+    public void limitsAreParsedByEndpoint() {
+        List<RateLimit> limits = RateLimit.limits(" POST /api=10/20, GET /api/*=0.5 ,");
+
+        assertThat(limits.size(), is(2));
+        assertThat(limits.get(0).toString(), is("POST /api"));
+        assertThat(limits.get(0).getBurst(), is(20));
+        assertThat(limits.get(1).getRate(), is(0.5));
+        assertThat(limits.get(1).getBurst(), is(1));
+        assertThat(limits.get(1).matches("GET", "/api/f684a3c4"), is(true));
+        assertThat(limits.get(1).matches("GET", "/api/f684a3c4/stats"), is(false));
+        assertThat(limits.get(0).matches("GET", "/api"), is(false));
+    }
+
+    @Test
+    public void clientsPastTheirBurstAreToldWhenToRetry() throws Exception {
+        List<RateLimit> limits = RateLimit.limits("POST /api=2/3");
+        RateLimitFilter filter = new RateLimitFilter(limits, "X-Api-Key", RateLimitFilter.apiKeys("key, other"), 100,
+                null, Duration.ofSeconds(1), clock);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(post(filter, "10.0.0.1", null).getStatus(), is(200));
+        }
+        MockHttpServletResponse rejected = post(filter, "10.0.0.1", null);
+        assertThat(rejected.getStatus(), is(429));
+        assertThat(rejected.getHeader("Retry-After"), is("1"));
+        // a key that was not issued does not get a bucket of its own
+        assertThat(post(filter, "10.0.0.1", "made-up").getStatus(), is(429));
+        // other clients and other endpoints have their own buckets
+        assertThat(post(filter, "10.0.0.2", null).getStatus(), is(200));
+        assertThat(post(filter, "10.0.0.1", "key").getStatus(), is(200));
+        assertThat(filter(filter, new MockHttpServletRequest("GET", "/api/f684a3c4")).getStatus(), is(200));
+
+        millis.addAndGet(500);
+        assertThat(post(filter, "10.0.0.1", null).getStatus(), is(200));
+        assertThat(post(filter, "10.0.0.1", null).getStatus(), is(429));
+
+        // full buckets are dropped
+        millis.addAndGet(10_000);
+        assertThat(filter.acquire(request("10.0.0.3", null)), is(0L));
+        filter.sync();
+        assertThat(limits.get(0).buckets.keySet(), contains("10.0.0.3"));
+    }
+
+    @Test
+    public void clientsPastTheMaximumShareABucket() throws Exception {
+        List<RateLimit> limits = RateLimit.limits("POST /api=1/2");
+        RateLimitFilter filter = new RateLimitFilter(limits, "", Collections.emptySet(), 2, null, Duration.ofSeconds(1), clock);
+
+        for (int i = 1; i <= 4; i++) {
+            assertThat(post(filter, "10.0.0." + i, null).getStatus(), is(200));
+        }
+        assertThat(post(filter, "10.0.0.5", null).getStatus(), is(429));
+        assertThat(post(filter, "10.0.0.1", null).getStatus(), is(200));
+        assertThat(limits.get(0).buckets.keySet(), containsInAnyOrder("10.0.0.1", "10.0.0.2", RateLimit.OVERFLOW));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void aClientHeaderNeedsApiKeys() {
+        new RateLimitFilter(RateLimit.limits("POST /api=1"), "X-Api-Key", Collections.emptySet(), 100, null,
+                Duration.ofSeconds(1), clock);
+    }
+
+    /**
+     * Runs against the local Redis.
+     */
+    @Test
+    public void requestsAdmittedElsewhereAreCharged() throws Exception {
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory("localhost", 6379);
+        connectionFactory.afterPropertiesSet();
+        StringRedisTemplate sharedData = new StringRedisTemplate(connectionFactory);
+        sharedData.delete("ratelimit:POST /api:10.0.0.1");
+        RateLimitFilter first = new RateLimitFilter(RateLimit.limits("POST /api=1/10"), "", Collections.emptySet(), 100,
+                sharedData, Duration.ofSeconds(1), clock);
+        RateLimitFilter second = new RateLimitFilter(RateLimit.limits("POST /api=1/10"), "", Collections.emptySet(), 100,
+                sharedData, Duration.ofSeconds(1), clock);
+
+        assertThat(post(first, "10.0.0.1", null).getStatus(), is(200));
+        assertThat(post(second, "10.0.0.1", null).getStatus(), is(200));
+        first.sync();
+        second.sync();
+        for (int i = 0; i < 8; i++) {
+            assertThat(post(first, "10.0.0.1", null).getStatus(), is(200));
+        }
+        first.sync();
+        second.sync();
+
+        // 10 requests were admitted in all, but the one admitted by the first instance before the
+        // second knew the client is not charged to the second
+        assertThat(post(first, "10.0.0.1", null).getStatus(), is(429));
+        assertThat(post(second, "10.0.0.1", null).getStatus(), is(200));
+        assertThat(post(second, "10.0.0.1", null).getStatus(), is(429));
+        assertThat(sharedData.opsForValue().get("ratelimit:POST /api:10.0.0.1"), is("10"));
+        sharedData.delete("ratelimit:POST /api:10.0.0.1");
+        connectionFactory.destroy();
+    }
+
+    private static MockHttpServletResponse post(RateLimitFilter filter, String address, String key) throws Exception {
+        return filter(filter, request(address, key));
+    }
+
+    private static MockHttpServletRequest request(String address, String key) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api");
+        request.setRemoteAddr(address);
+        if (key != null) {
+            request.addHeader("X-Api-Key", key);
+        }
+        return request;
+    }
+
+    private static MockHttpServletResponse filter(RateLimitFilter filter, MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,34 @@
+package urlshortener.redirect;
+
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class RedirectPolicyTest {
+
+    @Test
+    public void temporaryRedirectsAreNotCachedByDefault() {
+        RedirectPolicy policy = new RedirectPolicy(307, Duration.ZERO);
+
+        assertThat(policy.getStatus(), is(HttpStatus.TEMPORARY_REDIRECT));
+        assertThat(policy.getCacheControl(), is(nullValue()));
+    }
+
+    @Test
+    public void permanentRedirectsCanBeCached() {
+        RedirectPolicy policy = new RedirectPolicy(308, Duration.ofDays(1));
+
+        assertThat(policy.getStatus(), is(HttpStatus.PERMANENT_REDIRECT));
+        assertThat(policy.getCacheControl(), is("max-age=86400, public"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void onlyRedirectsThatKeepTheMethodAreAccepted() {
+        new RedirectPolicy(303, Duration.ZERO);
+    }
+}
@@ -0,0 +1,39 @@
+package urlshortener.server;
+
+import org.apache.catalina.connector.Connector;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.concurrent.Executor;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+@ActiveProfiles("virtual")
+public class VirtualThreadsTest {
+
+    @Autowired
+    private ServletWebServerApplicationContext context;
+
+    @Test
+    public void tomcatUsesVirtualThreadsWhenAvailable() {
+        Connector connector = ((TomcatWebServer) context.getWebServer()).getTomcat().getConnector();
+        Executor executor = connector.getProtocolHandler().getExecutor();
+        if (VirtualThreads.newVirtualThreadPerTaskExecutor() != null) {
+            assertThat(executor, is(not(instanceOf(org.apache.tomcat.util.threads.ThreadPoolExecutor.class))));
+        } else {
+            assertThat(executor, is(instanceOf(org.apache.tomcat.util.threads.ThreadPoolExecutor.class)));
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package urlshortener.stats;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class ClickRecorderTest {
+
+    private static final String HASH = "f684a3c4";
+
+    @Test
+    public void ringBufferRejectsWhenFull() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(3);
+        assertThat(buffer.capacity(), is(4));
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer(i), is(true));
+        }
+        assertThat(buffer.offer(4), is(false));
+        assertThat(buffer.poll(), is(0));
+        assertThat(buffer.offer(4), is(true));
+        for (int i = 1; i <= 4; i++) {
+            assertThat(buffer.poll(), is(i));
+        }
+        assertThat(buffer.poll(), is(nullValue()));
+    }
+
+    @Test
+    public void ringBufferLosesNothingWithConcurrentProducers() throws Exception {
+        RingBuffer<Integer> buffer = new RingBuffer<>(1024);
+        int producers = 4;
+        int perProducer = 100_000;
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            int first = p * perProducer;
+            executor.execute(() -> {
+                for (int i = first; i < first + perProducer; i++) {
+                    while (!buffer.offer(i)) {
+                        Thread.yield();
+                    }
+                }
+                done.countDown();
+            });
+        }
+        Set<Integer> seen = ConcurrentHashMap.newKeySet();
+        while (seen.size() < producers * perProducer) {
+            Integer element = buffer.poll();
+            if (element != null) {
+                assertThat(seen.add(element), is(true));
+            }
+        }
+        assertThat(done.await(10, TimeUnit.SECONDS), is(true));
+        executor.shutdown();
+        assertThat(buffer.poll(), is(nullValue()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void flushAggregatesClicksIntoOnePipeline() {
+        StringRedisTemplate sharedData = mock(StringRedisTemplate.class);
+        StringRedisConnection connection = mock(StringRedisConnection.class);
+        given(sharedData.executePipelined(any(RedisCallback.class))).willAnswer(invocation -> {
+            ((RedisCallback<Object>) invocation.getArgument(0)).doInRedis(connection);
+            return null;
+        });
+        ClickRecorder recorder = new ClickRecorder(sharedData, 16, Duration.ofSeconds(1), 100);
+        String chrome = "Mozilla/5.0 (Windows NT 6.1) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/41.0.2228.0 Safari/537.36";
+        recorder.record(new ClickEvent(HASH, "https://news.example.com/item?id=1", chrome, "10.0.0.1"));
+        recorder.record(new ClickEvent(HASH, "https://news.example.com/", chrome, "10.0.0.2"));
+        recorder.record(new ClickEvent(HASH, null, "curl/7.58.0", "10.0.0.1"));
+
+        recorder.flush();
+
+        String key = ClickRecorder.key(HASH);
+        verify(connection).hIncrBy(key, ClickRecorder.CLICKS, 3L);
+        verify(connection).evalSha(anyString(), eq(ReturnType.INTEGER), eq(1),
+                eq(key), eq(ClickRecorder.REFERRER + "news.example.com"), eq("2"), eq("100"));
+        verify(connection).evalSha(anyString(), eq(ReturnType.INTEGER), eq(1),
+                eq(key), eq(ClickRecorder.REFERRER + "direct"), eq("1"), eq("100"));
+        verify(connection).hIncrBy(key, ClickRecorder.USER_AGENT + "chrome", 2L);
+        verify(connection).hIncrBy(key, ClickRecorder.USER_AGENT + "cli", 1L);
+        ArgumentCaptor<String> visitors = ArgumentCaptor.forClass(String.class);
+        verify(connection).pfAdd(eq(ClickRecorder.visitorsKey(HASH)), visitors.capture());
+        assertThat(visitors.getAllValues(), containsInAnyOrder("10.0.0.1", "10.0.0.2"));
+    }
+
+    /**
+     * Runs against the local Redis.
+     */
+    @Test
+    public void referrersPastTheLimitAreCountedAsOther() {
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory("localhost", 6379);
+        connectionFactory.afterPropertiesSet();
+        StringRedisTemplate sharedData = new StringRedisTemplate(connectionFactory);
+        sharedData.delete(Arrays.asList(ClickRecorder.key(HASH), ClickRecorder.visitorsKey(HASH)));
+        ClickRecorder recorder = new ClickRecorder(sharedData, 16, Duration.ofSeconds(1), 2);
+        for (String host : Arrays.asList("a.example.com", "b.example.com", "c.example.com")) {
+            recorder.record(new ClickEvent(HASH, "https://" + host + "/", null, null));
+            recorder.flush();
+        }
+        recorder.record(new ClickEvent(HASH, "https://a.example.com/", null, null));
+        recorder.record(new ClickEvent(HASH, "https://d.example.com/", null, null));
+        recorder.flush();
+
+        ClickStats stats = recorder.stats(HASH);
+
+        assertThat(stats.getClicks(), is(5L));
+        assertThat(stats.getReferrers().size(), is(3));
+        assertThat(stats.getReferrers().get("a.example.com"), is(2L));
+        assertThat(stats.getReferrers().get(ClickRecorder.OTHER), is(2L));
+        assertThat(stats.getReferrers().values().stream().mapToLong(Long::longValue).sum(), is(5L));
+        sharedData.delete(Arrays.asList(ClickRecorder.key(HASH), ClickRecorder.visitorsKey(HASH)));
+        connectionFactory.destroy();
+    }
+}
@@ -0,0 +1,51 @@
+package urlshortener.stats;
+
+import org.junit.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import urlshortener.store.UrlStore;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class StatsSweeperTest {
+
+    /**
+     * Runs against the local Redis.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void statisticsOfGoneIdsAreDeleted() {
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory("localhost", 6379);
+        connectionFactory.afterPropertiesSet();
+        StringRedisTemplate sharedData = new StringRedisTemplate(connectionFactory);
+        UrlStore urlStore = mock(UrlStore.class);
+        given(urlStore.get(anyList())).willAnswer(invocation -> ((List<String>) invocation.getArgument(0)).stream()
+                .map(id -> id.startsWith("kept") ? "http://example.com/" : null)
+                .collect(Collectors.toList()));
+        for (int i = 0; i < 1500; i++) {
+            String id = (i % 2 == 0 ? "kept" : "gone") + i;
+            sharedData.opsForHash().increment(ClickRecorder.key(id), "clicks", 1);
+            sharedData.opsForHyperLogLog().add(ClickRecorder.visitorsKey(id), "10.0.0.1");
+        }
+        StatsSweeper sweeper = new StatsSweeper(sharedData, urlStore, Duration.ofHours(1));
+
+        assertThat(sweeper.sweep() >= 750, is(true));
+
+        for (int i = 0; i < 1500; i++) {
+            String id = (i % 2 == 0 ? "kept" : "gone") + i;
+            assertThat(sharedData.hasKey(ClickRecorder.key(id)), is(i % 2 == 0));
+            assertThat(sharedData.hasKey(ClickRecorder.visitorsKey(id)), is(i % 2 == 0));
+            sharedData.delete(ClickRecorder.key(id));
+            sharedData.delete(ClickRecorder.visitorsKey(id));
+        }
+        connectionFactory.destroy();
+    }
+}
@@ -0,0 +1,76 @@
+package urlshortener.store;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+public class ConsistentHashRingTest {
+
+    private static final int KEYS = 100_000;
+
+    @Test
+    public void keysAreSpreadEvenly() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(nodes(4), 160);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.get(key(i)), 1, Integer::sum);
+        }
+
+        assertThat(counts.size(), is(4));
+        for (int count : counts.values()) {
+            assertThat(count, allOf(greaterThan(KEYS / 4 * 8 / 10), lessThan(KEYS / 4 * 12 / 10)));
+        }
+    }
+
+    @Test
+    public void aNewNodeOnlyTakesItsShare() {
+        ConsistentHashRing<String> four = new ConsistentHashRing<>(nodes(4), 160);
+        ConsistentHashRing<String> five = new ConsistentHashRing<>(nodes(5), 160);
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String before = four.get(key(i));
+            String after = five.get(key(i));
+            if (!before.equals(after)) {
+                assertThat(after, is("node-4"));
+                moved++;
+            }
+        }
+
+        assertThat(moved, allOf(greaterThan(KEYS / 5 * 8 / 10), lessThan(KEYS / 5 * 12 / 10)));
+    }
+
+    @Test
+    public void ownersDoNotDependOnTheOrderOfTheNodes() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(nodes(3), 160);
+        ConsistentHashRing<String> sorted = new ConsistentHashRing<>(new TreeMap<>(nodes(3)).descendingMap(), 160);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(sorted.get(key(i)), is(ring.get(key(i))));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void aRingNeedsNodes() {
+        new ConsistentHashRing<>(new HashMap<String, String>(), 160);
+    }
+
+    private static Map<String, String> nodes(int count) {
+        Map<String, String> nodes = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            nodes.put("node-" + i, "node-" + i);
+        }
+        return nodes;
+    }
+
+    private static String key(int i) {
+        return Integer.toHexString(i * 0x9E3779B9);
+    }
+}
@@ -0,0 +1,120 @@
+package urlshortener.store;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.RedisServerCommands;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Runs against the local Redis, filling its database 7 with two million links. The memory used
+ * is that of the whole server, so nothing else should write to it meanwhile. As that takes minutes,
+ * it only runs when asked: {@code gradle test -Durlshortener.memory-test=true}.
+ */
+public class LinkMemoryTest {
+
+    private static final Logger log = LoggerFactory.getLogger(LinkMemoryTest.class);
+
+    private static final int LINKS = 1_000_000;
+    private static final int BATCH = 10_000;
+
+    private RedisUrlStore node;
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate server;
+
+    @Before
+    public void connect() {
+        Assume.assumeTrue("Run with -Durlshortener.memory-test=true", Boolean.getBoolean("urlshortener.memory-test"));
+        node = RedisUrlStore.connect("localhost:6379/7", Duration.ofSeconds(10), 8);
+        connectionFactory = new LettuceConnectionFactory(RedisUrlStore.standalone("localhost:6379/7"));
+        connectionFactory.afterPropertiesSet();
+        server = new StringRedisTemplate(connectionFactory);
+        flush();
+    }
+
+    @After
+    public void close() {
+        if (node == null) {
+            return;
+        }
+        flush();
+        node.close();
+        connectionFactory.destroy();
+    }
+
+    private void flush() {
+        node.scanIds(BATCH, node::delete);
+    }
+
+    @Test
+    public void limitedLinksGiveTheirMemoryBackWhenTheyExpire() throws Exception {
+        long empty = usedMemory();
+        long start = System.nanoTime();
+        store("p", LinkLimits.NONE, LINKS);
+        Duration took = Duration.ofNanos(System.nanoTime() - start);
+        long permanent = usedMemory();
+
+        // long enough to store the limited links first, which takes longer
+        Instant expiresAt = Instant.now().plus(took.multipliedBy(4)).plusSeconds(10);
+        store("e", new LinkLimits(expiresAt, 0), LINKS / 2);
+        long expiring = usedMemory();
+        store("c", new LinkLimits(expiresAt, 10), LINKS / 2);
+        long clickLimited = usedMemory();
+
+        long permanentBytes = (permanent - empty) / LINKS;
+        long expiringBytes = (expiring - permanent) / (LINKS / 2);
+        long clickLimitedBytes = (clickLimited - expiring) / (LINKS / 2);
+        log.info("Bytes per link: {} permanent, {} expiring, {} click limited", permanentBytes, expiringBytes,
+                clickLimitedBytes);
+        // an id, a URL of 36 characters and their overhead; the limits, the expiry and the clicks left
+        assertThat("bytes per permanent link", permanentBytes, lessThan(160L));
+        assertThat("bytes per expiring link", expiringBytes, lessThan(permanentBytes + 100));
+        assertThat("bytes per click limited link", clickLimitedBytes, lessThan(expiringBytes + 180));
+
+        while (Instant.now().isBefore(expiresAt)) {
+            Thread.sleep(1000);
+        }
+        // Redis deletes the expired keys in the background, a bounded amount at a time
+        long deadline = System.nanoTime() + Duration.ofMinutes(1).toNanos();
+        while (dbSize() > LINKS && System.nanoTime() < deadline) {
+            Thread.sleep(500);
+        }
+        assertThat(dbSize(), is((long) LINKS));
+        assertThat(usedMemory() - empty, lessThan(permanent - empty + (clickLimited - permanent) / 10));
+    }
+
+    private void store(String prefix, LinkLimits limits, int count) {
+        for (int from = 0; from < count; from += BATCH) {
+            List<String> ids = new ArrayList<>(BATCH);
+            List<String> urls = new ArrayList<>(BATCH);
+            for (int i = from; i < from + BATCH; i++) {
+                ids.add(String.format("%s%07d", prefix, i));
+                urls.add(String.format("http://example.com/campaign/%08d", i));
+            }
+            node.setIfAbsent(ids, urls, limits);
+        }
+    }
+
+    private long usedMemory() {
+        return Long.parseLong(server.execute((RedisCallback<String>) connection ->
+                connection.info("memory").getProperty("used_memory")));
+    }
+
+    private long dbSize() {
+        return server.execute(RedisServerCommands::dbSize, true);
+    }
+}
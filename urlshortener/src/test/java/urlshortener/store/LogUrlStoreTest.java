@@ -0,0 +1,228 @@
+package urlshortener.store;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class LogUrlStoreTest {
+
+    private static final int SEGMENT_SIZE = 64 * 1024;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<LogUrlStore> stores = new ArrayList<>();
+
+    @After
+    public void close() {
+        stores.forEach(LogUrlStore::close);
+    }
+
+    @Test
+    public void idsAreClaimedOnce() throws Exception {
+        LogUrlStore store = open();
+
+        assertThat(store.setIfAbsent("f684a3c4", "http://example.com/"), is(true));
+        assertThat(store.setIfAbsent("f684a3c4", "http://example.org/"), is(false));
+        assertThat(store.get("f684a3c4"), is("http://example.com/"));
+        assertThat(store.get("f684a3c5"), is(nullValue()));
+        assertThat(store.setIfAbsent(Arrays.asList("a", "f684a3c4", "b"), Arrays.asList("http://a/", "http://x/", "http://b/")),
+                contains(true, false, true));
+        assertThat(store.get(Arrays.asList("b", "c", "a")), contains("http://b/", null, "http://a/"));
+    }
+
+    @Test
+    public void nonAsciiIdsAndUrls() throws Exception {
+        LogUrlStore store = open();
+
+        store.setIfAbsent("caf\u00e9", "http://example.com/caf\u00e9");
+        store.setIfAbsent("cafe", "http://example.com/cafe");
+
+        assertThat(store.get("caf\u00e9"), is("http://example.com/caf\u00e9"));
+        assertThat(store.get("cafe"), is("http://example.com/cafe"));
+    }
+
+    @Test
+    public void theLogIsReplayedOnStartup() throws Exception {
+        LogUrlStore store = open();
+        for (int i = 0; i < 10_000; i++) {
+            store.setIfAbsent(id(i), url(i));
+        }
+        store.delete(Arrays.asList(id(1), id(2)));
+        store.close();
+
+        LogUrlStore reopened = open();
+
+        assertThat(reopened.size(), is(9998));
+        assertThat(reopened.get(id(1)), is(nullValue()));
+        assertThat(reopened.get(id(3)), is(url(3)));
+        assertThat(reopened.get(id(9999)), is(url(9999)));
+        assertThat(segments().size() > 1, is(true));
+    }
+
+    @Test
+    public void aTornRecordIsDroppedAndOverwritten() throws Exception {
+        LogUrlStore store = open();
+        store.setIfAbsent("a", "http://a/");
+        store.setIfAbsent("b", "http://b/");
+        store.close();
+        Path segment = segments().get(0);
+        int secondRecord = 12 + 1 + 9;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), secondRecord + 12 + 1 + 4);
+        }
+
+        LogUrlStore recovered = open();
+
+        assertThat(recovered.get("a"), is("http://a/"));
+        assertThat(recovered.get("b"), is(nullValue()));
+        assertThat(recovered.setIfAbsent("c", "http://c/"), is(true));
+        recovered.close();
+        LogUrlStore again = open();
+        assertThat(again.get("a"), is("http://a/"));
+        assertThat(again.get("c"), is("http://c/"));
+        assertThat(again.size(), is(2));
+    }
+
+    @Test
+    public void compactionDropsDeletedRecords() throws Exception {
+        LogUrlStore store = open();
+        List<String> deleted = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            store.setIfAbsent(id(i), url(i));
+            if (i % 4 != 0) {
+                deleted.add(id(i));
+            }
+        }
+        store.delete(deleted);
+        long before = size(segments());
+
+        int compacted = store.compact();
+
+        assertThat(compacted > 0, is(true));
+        assertThat(size(segments()), lessThan(before));
+        assertThat(store.size(), is(2500));
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(store.get(id(i)), is(i % 4 == 0 ? url(i) : null));
+        }
+        store.close();
+
+        LogUrlStore reopened = open();
+        assertThat(reopened.size(), is(2500));
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(reopened.get(id(i)), is(i % 4 == 0 ? url(i) : null));
+        }
+    }
+
+    @Test
+    public void deletedIdsCanBeClaimedAgain() throws Exception {
+        LogUrlStore store = open();
+        store.setIfAbsent("a", "http://a/");
+        store.delete(Arrays.asList("a"));
+        assertThat(store.setIfAbsent("a", "http://b/"), is(true));
+        store.close();
+
+        assertThat(open().get("a"), is("http://b/"));
+    }
+
+    @Test
+    public void idsAreListed() throws Exception {
+        LogUrlStore store = open();
+        for (int i = 0; i < 250; i++) {
+            store.setIfAbsent(id(i), url(i));
+        }
+        List<Integer> batches = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+
+        store.scanIds(100, batch -> {
+            batches.add(batch.size());
+            ids.addAll(batch);
+        });
+
+        assertThat(batches, contains(100, 100, 50));
+        assertThat(ids.stream().sorted().collect(Collectors.toList()),
+                is(Stream.iterate(0, i -> i + 1).limit(250).map(LogUrlStoreTest::id).sorted().collect(Collectors.toList())));
+    }
+
+    @Test
+    public void readersSeeEveryWrite() throws Exception {
+        LogUrlStore store = open();
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int r = 0; r < 4; r++) {
+                results.add(readers.submit(() -> {
+                    int errors = 0;
+                    for (int i = 0; i < 200_000; i++) {
+                        int n = i % 20_000;
+                        String url = store.get(id(n));
+                        if (url != null && !url.equals(url(n))) {
+                            errors++;
+                        }
+                    }
+                    return errors;
+                }));
+            }
+            for (int i = 0; i < 20_000; i++) {
+                store.setIfAbsent(id(i), url(i));
+            }
+            for (Future<Integer> errors : results) {
+                assertThat(errors.get(1, TimeUnit.MINUTES), is(0));
+            }
+        } finally {
+            readers.shutdownNow();
+        }
+    }
+
+    private LogUrlStore open() {
+        LogUrlStore store = new LogUrlStore(folder.getRoot().toPath(), SEGMENT_SIZE, Duration.ofMinutes(1));
+        stores.add(store);
+        return store;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static long size(List<Path> files) throws IOException {
+        long size = 0;
+        for (Path file : files) {
+            size += Files.size(file);
+        }
+        return size;
+    }
+
+    private static String id(int i) {
+        return Integer.toHexString(0x10000000 + i * 7919);
+    }
+
+    private static String url(int i) {
+        return "http://example.com/" + i;
+    }
+}
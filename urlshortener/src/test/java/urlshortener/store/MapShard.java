@@ -0,0 +1,72 @@
+package urlshortener.store;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * An in-memory stand-in for a Redis node.
+ */
+class MapShard implements UrlShard {
+
+    final String name;
+    final Map<String, String> urls = new ConcurrentHashMap<>();
+    Runnable beforeBatch = () -> { };
+    boolean closed;
+
+    MapShard(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String get(String id) {
+        return urls.get(id);
+    }
+
+    @Override
+    public List<String> get(List<String> ids) {
+        return ids.stream().map(urls::get).collect(Collectors.toList());
+    }
+
+    @Override
+    public boolean setIfAbsent(String id, String url) {
+        return urls.putIfAbsent(id, url) == null;
+    }
+
+    @Override
+    public List<Boolean> setIfAbsent(List<String> ids, List<String> urls) {
+        List<Boolean> created = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            created.add(setIfAbsent(ids.get(i), urls.get(i)));
+        }
+        return created;
+    }
+
+    @Override
+    public void scanIds(int count, Consumer<List<String>> batch) {
+        List<String> ids = new ArrayList<>(urls.keySet());
+        for (int from = 0; from < ids.size(); from += count) {
+            beforeBatch.run();
+            batch.accept(new ArrayList<>(ids.subList(from, Math.min(ids.size(), from + count))));
+        }
+    }
+
+    @Override
+    public void delete(Collection<String> ids) {
+        ids.forEach(urls::remove);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
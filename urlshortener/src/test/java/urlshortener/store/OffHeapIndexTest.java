@@ -0,0 +1,52 @@
+package urlshortener.store;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class OffHeapIndexTest {
+
+    /**
+     * Locations are the ids themselves, and every id has one of 8 hashes to force long probes.
+     */
+    private static final OffHeapIndex.Matcher MATCHER = (location, id) -> location == Long.parseLong(id);
+
+    @Test
+    public void agreesWithAHashMapUnderRandomPutsAndRemoves() {
+        OffHeapIndex index = new OffHeapIndex(16);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            long id = random.nextInt(2000);
+            if (random.nextBoolean()) {
+                long previous = index.put(id % 8, id, String.valueOf(id), MATCHER);
+                assertThat(previous, is(expected.put(id, id) == null ? -1L : id));
+            } else {
+                long removed = index.remove(id % 8, String.valueOf(id), MATCHER);
+                assertThat(removed, is(expected.remove(id) == null ? -1L : id));
+            }
+        }
+        assertThat(index.size(), is(expected.size()));
+        for (long id = 0; id < 2000; id++) {
+            assertThat(index.find(id % 8, String.valueOf(id), MATCHER), is(expected.containsKey(id) ? id : -1L));
+        }
+    }
+
+    @Test
+    public void growsPastItsCapacity() {
+        OffHeapIndex index = new OffHeapIndex(16);
+        for (long id = 1; id <= 100_000; id++) {
+            index.put(OffHeapIndex.hash(String.valueOf(id)), id, String.valueOf(id), MATCHER);
+        }
+
+        assertThat(index.size(), is(100_000));
+        for (long id = 1; id <= 100_000; id++) {
+            assertThat(index.find(OffHeapIndex.hash(String.valueOf(id)), String.valueOf(id), MATCHER), is(id));
+        }
+    }
+}
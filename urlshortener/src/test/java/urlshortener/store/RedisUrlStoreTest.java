@@ -0,0 +1,172 @@
+package urlshortener.store;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Runs against the local Redis, whose databases 1 to 6 stand for separate nodes.
+ */
+public class RedisUrlStoreTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(2);
+
+    private final List<RedisUrlStore> nodes = new ArrayList<>();
+
+    @After
+    public void flush() {
+        for (int database = 1; database <= 6; database++) {
+            RedisUrlStore node = connect("localhost:6379/" + database);
+            node.scanIds(1000, node::delete);
+        }
+        nodes.forEach(RedisUrlStore::close);
+    }
+
+    @Test
+    public void shardedIdsMoveWhenANodeIsAdded() {
+        ShardedUrlStore store = new ShardedUrlStore(
+                Arrays.asList("localhost:6379/1", "localhost:6379/2", "localhost:6379/3"), 160, this::connect);
+        List<String> ids = new ArrayList<>();
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            ids.add("id" + i);
+            urls.add("http://example.com/" + i);
+        }
+        store.setIfAbsent(ids, urls);
+
+        long moved = store.reconfigure(Arrays.asList(
+                "localhost:6379/1", "localhost:6379/2", "localhost:6379/3", "localhost:6379/4"));
+
+        assertThat(moved > 300 && moved < 700, is(true));
+        assertThat(store.get(ids), is(urls));
+        RedisUrlStore added = connect("localhost:6379/4");
+        List<String> onAdded = new ArrayList<>();
+        added.scanIds(1000, onAdded::addAll);
+        assertThat((long) onAdded.size(), is(moved));
+        for (String id : onAdded) {
+            assertThat(store.owner(id).getName(), is("localhost:6379/4"));
+        }
+        store.close();
+    }
+
+    @Test
+    public void readsFallBackToThePrimaryWhenTheReplicaIsBehind() {
+        RedisUrlStore node = connect("localhost:6379/5|localhost:6379/6");
+        RedisUrlStore replica = connect("localhost:6379/6");
+
+        assertThat(node.setIfAbsent("abc", "http://example.com/"), is(true));
+        assertThat(replica.get("abc"), is(nullValue()));
+        assertThat(node.get("abc"), is("http://example.com/"));
+
+        replica.setIfAbsent("def", "http://example.org/");
+        assertThat(node.get("def"), is("http://example.org/"));
+        assertThat(node.get("ghi"), is(nullValue()));
+    }
+
+    @Test
+    public void redirectsOnlyGoToThePrimaryForLinksWithAClickLimit() {
+        RedisUrlStore node = connect("localhost:6379/5|localhost:6379/6");
+        RedisUrlStore primary = connect("localhost:6379/5");
+        RedisUrlStore replica = connect("localhost:6379/6");
+
+        // the replica answers alone for a permanent link, which the primary does not have here
+        replica.setIfAbsent("abc", "http://example.com/");
+        assertThat(node.redirect("abc").getUrl(), is("http://example.com/"));
+
+        // links with a click limit, or not replicated yet, are counted and read on the primary
+        LinkLimits twoClicks = new LinkLimits(null, 2);
+        primary.setIfAbsent("def", "http://example.org/", twoClicks);
+        replica.setIfAbsent("def", "http://example.org/", twoClicks);
+        primary.setIfAbsent("ghi", "http://example.net/");
+        assertThat(node.redirect("def").getLimits(), is(twoClicks));
+        assertThat(node.redirect("def").getUrl(), is("http://example.org/"));
+        assertThat(node.redirect("def"), is(nullValue()));
+        assertThat(replica.resolve("def").getLimits(), is(twoClicks));
+        assertThat(node.redirect("ghi").getUrl(), is("http://example.net/"));
+        assertThat(node.redirect("jkl"), is(nullValue()));
+    }
+
+    @Test
+    public void limitedIdsExpireOrRunOutOfClicks() throws Exception {
+        RedisUrlStore node = connect("localhost:6379/1");
+        Instant expiresAt = Instant.now().plusMillis(500).truncatedTo(ChronoUnit.MILLIS);
+        LinkLimits twoClicks = new LinkLimits(null, 2);
+
+        assertThat(node.setIfAbsent("abc", "http://example.com/", new LinkLimits(expiresAt, 0)), is(true));
+        assertThat(node.setIfAbsent(Arrays.asList("def", "ghi"), Arrays.asList("http://example.org/", "http://example.net/"),
+                twoClicks), contains(true, true));
+        assertThat(node.setIfAbsent("def", "http://example.com/", twoClicks), is(false));
+
+        assertThat(node.resolve("abc").getLimits(), is(new LinkLimits(expiresAt, 0)));
+        assertThat(node.resolve("def").getLimits(), is(twoClicks));
+        assertThat(node.click("abc").getUrl(), is("http://example.com/"));
+        assertThat(node.click("def").getUrl(), is("http://example.org/"));
+        assertThat(node.export(Arrays.asList("def", "ghi", "jkl")).get(0).getLimits(), is(new LinkLimits(null, 1)));
+        assertThat(node.click("def").getUrl(), is("http://example.org/"));
+        assertThat(node.click("def"), is(nullValue()));
+        assertThat(node.get("def"), is(nullValue()));
+        assertThat(node.get(Arrays.asList("abc", "def", "ghi")),
+                contains("http://example.com/", null, "http://example.net/"));
+
+        Thread.sleep(600);
+        assertThat(node.get("abc"), is(nullValue()));
+        assertThat(node.click("abc"), is(nullValue()));
+    }
+
+    @Test
+    public void limitedIdsMoveWithWhatIsLeftOfTheirLimits() {
+        ShardedUrlStore store = new ShardedUrlStore(
+                Arrays.asList("localhost:6379/1", "localhost:6379/2", "localhost:6379/3"), 160, this::connect);
+        Instant expiresAt = Instant.now().plus(1, ChronoUnit.HOURS).truncatedTo(ChronoUnit.MILLIS);
+        List<String> ids = new ArrayList<>();
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            ids.add("id" + i);
+            urls.add("http://example.com/" + i);
+        }
+        store.setIfAbsent(ids, urls, new LinkLimits(expiresAt, 3));
+        ids.forEach(store::click);
+
+        long moved = store.reconfigure(Arrays.asList(
+                "localhost:6379/1", "localhost:6379/2", "localhost:6379/3", "localhost:6379/4"));
+
+        assertThat(moved > 0, is(true));
+        for (int i = 0; i < ids.size(); i++) {
+            assertThat(store.resolve(ids.get(i)).getLimits().getExpiresAt(), is(expiresAt));
+            assertThat(store.click(ids.get(i)).getUrl(), is(urls.get(i)));
+            assertThat(store.click(ids.get(i)).getUrl(), is(urls.get(i)));
+            assertThat(store.click(ids.get(i)), is(nullValue()));
+        }
+        store.close();
+    }
+
+    @Test
+    public void statisticsKeysAreNotIds() {
+        RedisUrlStore node = connect("localhost:6379/1");
+        node.setIfAbsent("abc", "http://example.com/");
+        node.setIfAbsent("stats:abc", "1");
+
+        List<String> ids = new ArrayList<>();
+        node.scanIds(10, ids::addAll);
+
+        assertThat(ids, is(Arrays.asList("abc")));
+        node.delete(Arrays.asList("stats:abc"));
+    }
+
+    private RedisUrlStore connect(String node) {
+        RedisUrlStore store = RedisUrlStore.connect(node, TIMEOUT, 8);
+        nodes.add(store);
+        return store;
+    }
+}
@@ -0,0 +1,124 @@
+package urlshortener.store;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ShardedUrlStoreTest {
+
+    private final Map<String, MapShard> shards = new HashMap<>();
+    private final ShardedUrlStore store = new ShardedUrlStore(Arrays.asList("a", "b", "c"), 160,
+            name -> shards.computeIfAbsent(name, MapShard::new));
+
+    @Test
+    public void idsAreStoredByTheirOwner() {
+        for (int i = 0; i < 1000; i++) {
+            assertThat(store.setIfAbsent(id(i), url(i)), is(true));
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(store.get(id(i)), is(url(i)));
+            assertThat(shards.get(store.owner(id(i)).getName()).urls.get(id(i)), is(url(i)));
+            assertThat(store.setIfAbsent(id(i), "http://example.org/"), is(false));
+        }
+        for (MapShard shard : shards.values()) {
+            assertThat(shard.urls.isEmpty(), is(false));
+        }
+        assertThat(store.get("unknown"), is(nullValue()));
+    }
+
+    @Test
+    public void batchesKeepTheirOrder() {
+        store.setIfAbsent(id(3), url(3));
+        List<String> ids = new ArrayList<>();
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ids.add(id(i));
+            urls.add(url(i));
+        }
+
+        List<Boolean> created = store.setIfAbsent(ids, urls);
+
+        assertThat(created, contains(true, true, true, false, true, true, true, true, true, true));
+        assertThat(store.get(ids), is(urls));
+    }
+
+    @Test
+    public void reconfigurationMovesIdsToTheirNewOwner() {
+        for (int i = 0; i < 1000; i++) {
+            store.setIfAbsent(id(i), url(i));
+        }
+
+        long moved = store.reconfigure(Arrays.asList("a", "b", "d", "e"));
+
+        assertThat(store.getNodes(), contains("a", "b", "d", "e"));
+        assertThat(shards.get("c").closed, is(true));
+        assertThat(shards.get("c").urls.isEmpty(), is(true));
+        int total = 0;
+        for (int i = 0; i < 1000; i++) {
+            assertThat(store.get(id(i)), is(url(i)));
+            assertThat(shards.get(store.owner(id(i)).getName()).urls.get(id(i)), is(url(i)));
+        }
+        for (String node : store.getNodes()) {
+            total += shards.get(node).urls.size();
+        }
+        assertThat(total, is(1000));
+        assertThat(moved > 0 && moved < 1000, is(true));
+    }
+
+    @Test
+    public void idsCanBeReadAndAreNotClaimedTwiceWhileMoving() {
+        for (int i = 0; i < 1000; i++) {
+            store.setIfAbsent(id(i), url(i));
+        }
+        AtomicBoolean checked = new AtomicBoolean();
+        shards.get("c").beforeBatch = () -> {
+            for (int i = 0; i < 1000; i++) {
+                assertThat(store.get(id(i)), is(url(i)));
+                assertThat(store.setIfAbsent(id(i), "http://example.org/"), is(false));
+            }
+            checked.set(true);
+        };
+
+        store.reconfigure(Arrays.asList("a", "b", "d"));
+
+        assertThat(checked.get(), is(true));
+        for (int i = 0; i < 1000; i++) {
+            assertThat(store.get(id(i)), is(url(i)));
+        }
+    }
+
+    @Test
+    public void nodesAreReusedAcrossReconfigurations() {
+        MapShard a = shards.get("a");
+
+        store.reconfigure(Arrays.asList("a", "b", "c", "d"));
+
+        assertThat(shards.get("a") == a, is(true));
+        assertThat(a.closed, is(false));
+    }
+
+    @Test
+    public void nodeListsAreSplitOnCommas() {
+        assertThat(ShardedUrlStore.nodes(" db1:6379|db1-replica:6379, db2:6379,,"),
+                contains("db1:6379|db1-replica:6379", "db2:6379"));
+    }
+
+    private static String id(int i) {
+        return Integer.toHexString(0x10000000 + i * 7919);
+    }
+
+    private static String url(int i) {
+        return "http://example.com/" + i;
+    }
+}
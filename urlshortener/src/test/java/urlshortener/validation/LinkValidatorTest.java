@@ -0,0 +1,46 @@
+package urlshortener.validation;
+
+import org.apache.commons.validator.routines.UrlValidator;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class LinkValidatorTest {
+
+    private static final String[] URLS = {
+            "http://example.com/", "https://example.com/path?q=a b#top", "HTTP://EXAMPLE.COM",
+            "http://192.168.0.1:8080/", "http://[::1]/", "http://user@example.com/",
+            "ftp://example.com/", "http:/example.com/", "http://", "https:///path", "http://?q",
+            "http://#f", "example.com", "", " http://example.com/", "http://exa mple.com/",
+            "javascript:alert(1)", "https://ex\u00e1mple.com/"
+    };
+
+    private final UrlValidator reference = new UrlValidator(new String[]{"http", "https"});
+
+    @Test
+    public void agreesWithTheFullValidation() {
+        LinkValidator uncached = new LinkValidator(0);
+        LinkValidator cached = new LinkValidator(100);
+        for (int round = 0; round < 2; round++) {
+            for (String url : URLS) {
+                assertThat(url, uncached.isValid(url), is(reference.isValid(url)));
+                assertThat(url, cached.isValid(url), is(reference.isValid(url)));
+            }
+        }
+    }
+
+    @Test
+    public void preScanNeverRejectsValidUrls() {
+        for (String url : URLS) {
+            if (reference.isValid(url)) {
+                assertThat(url, LinkValidator.hasHttpAuthority(url), is(true));
+            }
+        }
+    }
+
+    @Test
+    public void rejectsNull() {
+        assertThat(new LinkValidator(0).isValid(null), is(false));
+    }
+}
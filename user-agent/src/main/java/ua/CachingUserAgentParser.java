@@ -0,0 +1,61 @@
+package ua;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import net.sf.uadetector.ReadableUserAgent;
+import net.sf.uadetector.UserAgentStringParser;
+
+/**
+ * A {@link UserAgentStringParser} that remembers the result of each User-Agent string.
+ *
+ * Real traffic has a few thousand distinct User-Agent strings, so most requests are answered
+ * from a bounded cache instead of running the regular expressions of the data set. Strings
+ * longer than {@code maximumLength} are parsed but not cached.
+ */
+public class CachingUserAgentParser implements UserAgentStringParser, MeterBinder {
+
+    private final UserAgentStringParser parser;
+    private final Cache<String, ReadableUserAgent> cache;
+    private final int maximumLength;
+
+    public CachingUserAgentParser(UserAgentStringParser parser, long maximumSize, int maximumLength) {
+        this.parser = parser;
+        this.cache = Caffeine.newBuilder().maximumSize(maximumSize).recordStats().build();
+        this.maximumLength = maximumLength;
+    }
+
+    @Override
+    public ReadableUserAgent parse(String userAgent) {
+        if (userAgent == null || userAgent.length() > maximumLength) {
+            return parser.parse(userAgent);
+        }
+        return cache.get(userAgent, parser::parse);
+    }
+
+    @Override
+    public String getDataVersion() {
+        return parser.getDataVersion();
+    }
+
+    /**
+     * The wrapped parser is shared, so it is not shut down with this one.
+     */
+    @Override
+    public void shutdown() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new CaffeineCacheMetrics(cache, "userAgents", Tags.empty()).bindTo(registry);
+    }
+}
@@ -0,0 +1,22 @@
+package ua;
+
+import net.sf.uadetector.UserAgentStringParser;
+import net.sf.uadetector.service.UADetectorServiceFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Provides a single {@link UserAgentStringParser}, built on the data set of the
+ * {@code uadetector-resources} module and cached with {@link CachingUserAgentParser}.
+ */
+@Configuration
+public class UserAgentConfiguration {
+
+    @Bean
+    public CachingUserAgentParser userAgentStringParser(
+            @Value("${ua.cache.maximum-size:10000}") long maximumSize,
+            @Value("${ua.cache.maximum-length:512}") int maximumLength) {
+        return new CachingUserAgentParser(UADetectorServiceFactory.getResourceModuleParser(), maximumSize, maximumLength);
+    }
+}
@@ -0,0 +1,64 @@
+package ua;
+
+import net.sf.uadetector.ReadableUserAgent;
+import net.sf.uadetector.UserAgentStringParser;
+import net.sf.uadetector.service.UADetectorServiceFactory;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class CachingUserAgentParserTest {
+
+    private final UserAgentStringParser reference = UADetectorServiceFactory.getResourceModuleParser();
+
+    @Test
+    public void parsesLikeTheWrappedParser() throws IOException {
+        CachingUserAgentParser parser = new CachingUserAgentParser(reference, 1000, 512);
+        for (int round = 0; round < 3; round++) {
+            for (String userAgent : corpus()) {
+                ReadableUserAgent expected = reference.parse(userAgent);
+                ReadableUserAgent actual = parser.parse(userAgent);
+                assertThat(userAgent, actual.getName(), is(expected.getName()));
+                assertThat(userAgent, actual.getVersionNumber(), is(expected.getVersionNumber()));
+                assertThat(userAgent, actual.getOperatingSystem(), is(expected.getOperatingSystem()));
+                assertThat(userAgent, actual.getType(), is(expected.getType()));
+            }
+        }
+    }
+
+    @Test
+    public void repeatedUserAgentsAreServedFromTheCache() throws IOException {
+        CachingUserAgentParser parser = new CachingUserAgentParser(reference, 1000, 512);
+        List<String> corpus = corpus();
+        for (int round = 0; round < 10; round++) {
+            corpus.forEach(parser::parse);
+        }
+        assertThat(parser.stats().missCount(), is((long) corpus.size()));
+        assertThat(parser.stats().hitRate(), is(greaterThan(0.89)));
+    }
+
+    @Test
+    public void longUserAgentsAreNotCached() {
+        CachingUserAgentParser parser = new CachingUserAgentParser(reference, 1000, 16);
+        parser.parse("Mozilla/5.0 (compatible; Googlebot/2.1; +http://www.google.com/bot.html)");
+        assertThat(parser.stats().requestCount(), is(0L));
+    }
+
+    static List<String> corpus() throws IOException {
+        ClassPathResource resource = new ClassPathResource("user-agents.txt");
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            return reader.lines().filter(line -> !line.isEmpty()).collect(Collectors.toList());
+        }
+    }
+}
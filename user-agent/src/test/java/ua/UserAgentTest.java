@@ -2,7 +2,6 @@ package ua;
 
 import net.sf.uadetector.ReadableUserAgent;
 import net.sf.uadetector.UserAgentStringParser;
-import net.sf.uadetector.service.UADetectorServiceFactory;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -38,10 +37,12 @@ public class UserAgentTest {
     @RestController
     static class TestConfig {
 
+        @Autowired
+        private UserAgentStringParser parser;
+
         @RequestMapping("/rest")
         @ResponseBody
         public String endpoint(@RequestHeader("User-Agent") String userAgent) {
-            UserAgentStringParser parser = UADetectorServiceFactory.getResourceModuleParser();
             ReadableUserAgent rua = parser.parse(userAgent);
             return rua.getVersionNumber().getMajor();
         }
@@ -0,0 +1,103 @@
+package xml;
+
+import java.util.Arrays;
+
+/**
+ * A small subset of XPath that can be evaluated while streaming: a list of element names
+ * separated by {@code /}, optionally ending with an attribute.
+ *
+ * <ul>
+ * <li>{@code /posts/post/title} selects {@code title} elements at exactly that position</li>
+ * <li>{@code //post/title} selects {@code title} children of {@code post} at any depth</li>
+ * <li>{@code /posts/post/@id} selects the {@code id} attribute of every {@code post}</li>
+ * <li>{@code *} matches any element name</li>
+ * </ul>
+ */
+final class ElementPath {
+
+    private final String[] steps;
+    private final boolean absolute;
+    private final String attribute;
+
+    private ElementPath(String[] steps, boolean absolute, String attribute) {
+        this.steps = steps;
+        this.absolute = absolute;
+        this.attribute = attribute;
+    }
+
+    static ElementPath compile(String path) {
+        boolean absolute;
+        String relative;
+        if (path.startsWith("//")) {
+            absolute = false;
+            relative = path.substring(2);
+        } else if (path.startsWith("/")) {
+            absolute = true;
+            relative = path.substring(1);
+        } else {
+            throw new IllegalArgumentException("Path must start with / or //: " + path);
+        }
+        String[] steps = relative.split("/", -1);
+        String attribute = null;
+        String last = steps[steps.length - 1];
+        if (last.startsWith("@")) {
+            attribute = last.substring(1);
+            steps = Arrays.copyOf(steps, steps.length - 1);
+        }
+        if (steps.length == 0 || Arrays.stream(steps).anyMatch(String::isEmpty)
+                || (attribute != null && attribute.isEmpty())) {
+            throw new IllegalArgumentException("Invalid path: " + path);
+        }
+        return new ElementPath(steps, absolute, attribute);
+    }
+
+    /**
+     * @return the selected attribute, or {@code null} when the path selects elements
+     */
+    String attribute() {
+        return attribute;
+    }
+
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * The names of the open elements of a document being streamed.
+     */
+    final class Cursor {
+
+        private String[] names = new String[16];
+        private int depth;
+
+        void push(String name) {
+            if (depth == names.length) {
+                names = Arrays.copyOf(names, depth * 2);
+            }
+            names[depth++] = name;
+        }
+
+        void pop() {
+            names[--depth] = null;
+        }
+
+        int depth() {
+            return depth;
+        }
+
+        /**
+         * @return whether the innermost open element is selected by the path
+         */
+        boolean matches() {
+            if (absolute ? depth != steps.length : depth < steps.length) {
+                return false;
+            }
+            for (int i = steps.length - 1, j = depth - 1; i >= 0; i--, j--) {
+                if (!steps[i].equals("*") && !steps[i].equals(names[j])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package xml;
+
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Parses untrusted XML with the attacks of {@code XmlDangersTest} disabled.
+ *
+ * The factories are configured once and shared: external entities and DTDs are never loaded,
+ * and internal entities are expanded within the limits below. Documents can be read as a DOM
+ * or, for large inputs, streamed with {@link #select(InputStream, String, Consumer)} in
+ * constant memory.
+ */
+public final class SecureXml {
+
+    /**
+     * Maximum number of entity expansions per document, the JDK default is 64000.
+     */
+    public static final int ENTITY_EXPANSION_LIMIT = 10_000;
+
+    /**
+     * Maximum size of all entity expansions of a document, the JDK default is 5x10^7.
+     */
+    public static final int TOTAL_ENTITY_SIZE_LIMIT = 1_000_000;
+
+    private static final String JDK_PROPERTIES = "http://www.oracle.com/xml/jaxp/properties/";
+
+    private static final DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY = documentBuilderFactory();
+    private static final XMLInputFactory INPUT_FACTORY = inputFactory();
+
+    // DocumentBuilder is not thread-safe but can be reset and reused
+    private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDER = ThreadLocal.withInitial(() -> {
+        try {
+            return DOCUMENT_BUILDER_FACTORY.newDocumentBuilder();
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private SecureXml() {
+    }
+
+    public static Document parse(InputStream in) throws IOException, SAXException {
+        DocumentBuilder builder = DOCUMENT_BUILDER.get();
+        try {
+            return builder.parse(in);
+        } finally {
+            builder.reset();
+        }
+    }
+
+    public static XMLStreamReader createStreamReader(InputStream in) throws XMLStreamException {
+        return INPUT_FACTORY.createXMLStreamReader(in);
+    }
+
+    /**
+     * Streams the document and passes the text of every element that matches {@code path} to
+     * {@code consumer}. Only the text of the current match is kept in memory.
+     *
+     * @param path an {@link ElementPath}, such as {@code /posts/post/title}, {@code //title} or
+     *             {@code /posts/post/@id}
+     * @return the number of matches
+     */
+    public static long select(InputStream in, String path, Consumer<String> consumer) throws XMLStreamException {
+        ElementPath elementPath = ElementPath.compile(path);
+        XMLStreamReader reader = createStreamReader(in);
+        try {
+            return select(reader, elementPath, consumer);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static long select(XMLStreamReader reader, ElementPath path, Consumer<String> consumer)
+            throws XMLStreamException {
+        ElementPath.Cursor cursor = path.cursor();
+        StringBuilder text = new StringBuilder();
+        long matches = 0;
+        int matchDepth = -1;
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    cursor.push(reader.getLocalName());
+                    if (matchDepth < 0 && cursor.matches()) {
+                        if (path.attribute() == null) {
+                            matchDepth = cursor.depth();
+                        } else {
+                            String value = reader.getAttributeValue(null, path.attribute());
+                            if (value != null) {
+                                consumer.accept(value);
+                                matches++;
+                            }
+                        }
+                    }
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (matchDepth >= 0) {
+                        text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (cursor.depth() == matchDepth) {
+                        consumer.accept(text.toString());
+                        text.setLength(0);
+                        matchDepth = -1;
+                        matches++;
+                    }
+                    cursor.pop();
+                    break;
+                default:
+                    break;
+            }
+        }
+        return matches;
+    }
+
+    private static DocumentBuilderFactory documentBuilderFactory() {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        try {
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+            factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException("Cannot disable external entities", e);
+        }
+        factory.setXIncludeAware(false);
+        factory.setNamespaceAware(true);
+        factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+        factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
+        factory.setAttribute(JDK_PROPERTIES + "entityExpansionLimit", ENTITY_EXPANSION_LIMIT);
+        factory.setAttribute(JDK_PROPERTIES + "totalEntitySizeLimit", TOTAL_ENTITY_SIZE_LIMIT);
+        return factory;
+    }
+
+    private static XMLInputFactory inputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        factory.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+        factory.setProperty(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
+        factory.setProperty(JDK_PROPERTIES + "entityExpansionLimit", ENTITY_EXPANSION_LIMIT);
+        factory.setProperty(JDK_PROPERTIES + "totalEntitySizeLimit", TOTAL_ENTITY_SIZE_LIMIT);
+        return factory;
+    }
+}
@@ -0,0 +1,137 @@
+package xml;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.springframework.core.io.ClassPathResource;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXParseException;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasXPath;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+public class SecureXmlTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void billionLaughsAttackIsRejected() throws Exception {
+        thrown.expect(SAXParseException.class);
+        thrown.expectMessage(containsString("JAXP00010001"));
+        SecureXml.parse(resource("billion-laughs-attack.xml"));
+    }
+
+    @Test
+    public void billionLaughsAttackIsRejectedWhenStreaming() throws Exception {
+        thrown.expect(XMLStreamException.class);
+        thrown.expectMessage(containsString("JAXP00010001"));
+        SecureXml.select(resource("billion-laughs-attack.xml"), "/bomb", text -> { });
+    }
+
+    @Test
+    public void quadraticBlowupIsRejected() throws Exception {
+        thrown.expect(SAXParseException.class);
+        thrown.expectMessage(containsString("JAXP00010004"));
+        SecureXml.parse(resource("quadratic-blowup.xml"));
+    }
+
+    @Test
+    public void quadraticBlowupIsRejectedWhenStreaming() throws Exception {
+        thrown.expect(XMLStreamException.class);
+        thrown.expectMessage(containsString("JAXP00010004"));
+        SecureXml.select(resource("quadratic-blowup.xml"), "/bomb", text -> { });
+    }
+
+    @Test
+    public void externalEntitiesAreNotLoaded() throws Exception {
+        Document document = SecureXml.parse(resource("xxe.xml"));
+
+        assertThat(document, hasXPath("/post/author", is("mswiderek")));
+        assertThat(document, hasXPath("/post/content", not(containsString("root"))));
+    }
+
+    @Test
+    public void externalEntitiesAreNotLoadedWhenStreaming() throws Exception {
+        List<String> content = new ArrayList<>();
+        SecureXml.select(resource("xxe.xml"), "/post/content", content::add);
+
+        assertThat(content, contains(not(containsString("root"))));
+    }
+
+    @Test
+    public void selectsElementsAndAttributes() throws Exception {
+        String xml = "<posts><post id='1'><title>One</title></post>"
+                + "<archive><post id='2'><title>Two</title></post></archive></posts>";
+        List<String> selected = new ArrayList<>();
+
+        SecureXml.select(bytes(xml), "/posts/post/title", selected::add);
+        assertThat(selected, contains("One"));
+
+        selected.clear();
+        SecureXml.select(bytes(xml), "//post/title", selected::add);
+        assertThat(selected, contains("One", "Two"));
+
+        selected.clear();
+        SecureXml.select(bytes(xml), "/posts/*/post/@id", selected::add);
+        assertThat(selected, contains("2"));
+    }
+
+    @Test
+    public void streamsLargeDocuments() throws Exception {
+        int posts = 500_000;
+        long[] length = new long[1];
+
+        long matches = SecureXml.select(posts(posts), "/posts/post/title", title -> length[0] += title.length());
+
+        assertThat(matches, is((long) posts));
+        assertThat(length[0] > 0, is(true));
+    }
+
+    private static InputStream resource(String name) throws Exception {
+        return new ClassPathResource(name).getInputStream();
+    }
+
+    private static InputStream bytes(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * A document generated while it is read, so that it never exists in memory as a whole.
+     */
+    private static InputStream posts(int posts) {
+        return new SequenceInputStream(new Enumeration<InputStream>() {
+            private int next = -1;
+
+            @Override
+            public boolean hasMoreElements() {
+                return next <= posts;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                int i = next++;
+                if (i < 0) {
+                    return bytes("<posts>");
+                }
+                if (i == posts) {
+                    return bytes("</posts>");
+                }
+                return bytes("<post id='" + i + "'><title>Post " + i + "</title><content>Some content</content></post>");
+            }
+        });
+    }
+}